@@ -0,0 +1,49 @@
+package com.example.benchmark;
+
+import com.example.pojo.AggregationResult;
+import com.example.repositories.csv.ColumnarProductRepositoryImpl;
+import com.example.repositories.csv.CurrencyRepositoryImpl;
+import com.example.repositories.csv.MatchingRepositoryImpl;
+import com.example.services.AggregationService;
+import com.example.util.AggregationFileWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Writing stage: results aggregated once per trial and written to the output file.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AggregationFileWriterBenchmark extends BenchmarkDataset {
+
+    private List<AggregationResult> results;
+    private String outputFile;
+
+    @Override
+    protected void prepare() {
+        results = new AggregationService(
+                new ColumnarProductRepositoryImpl(productsFile.toString()),
+                new MatchingRepositoryImpl(matchingsFile.toString()),
+                new CurrencyRepositoryImpl(currenciesFile.toString()))
+                .aggregateProducts()
+                .collect(Collectors.toList());
+        outputFile = directory.resolve("top_products.csv").toString();
+    }
+
+    @Benchmark
+    public void write() {
+        AggregationFileWriter.INSTANCE.write(results.stream(), outputFile);
+    }
+}
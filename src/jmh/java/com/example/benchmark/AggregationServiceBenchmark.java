@@ -0,0 +1,66 @@
+package com.example.benchmark;
+
+import com.example.repositories.ColumnarProductRepository;
+import com.example.repositories.CurrencyRepository;
+import com.example.repositories.MatchingRepository;
+import com.example.repositories.ProductRepository;
+import com.example.repositories.csv.ColumnarProductRepositoryImpl;
+import com.example.repositories.csv.CurrencyRepositoryImpl;
+import com.example.repositories.csv.MatchingRepositoryImpl;
+import com.example.repositories.csv.ProductRepositoryImpl;
+import com.example.services.AggregationService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregation stage: products loaded once per trial and aggregated from the
+ * columnar repository, from the columnar repository with prices normalized at
+ * load time and from the stream of products.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class AggregationServiceBenchmark extends BenchmarkDataset {
+
+    private AggregationService columnarService;
+    private AggregationService normalizedService;
+    private AggregationService streamService;
+
+    @Override
+    protected void prepare() {
+        MatchingRepository matchingRepository = new MatchingRepositoryImpl(matchingsFile.toString());
+        CurrencyRepository currencyRepository = new CurrencyRepositoryImpl(currenciesFile.toString());
+        ProductRepository columnar = new ColumnarProductRepositoryImpl(productsFile.toString());
+        ColumnarProductRepository normalized = new ColumnarProductRepositoryImpl(productsFile.toString());
+        normalized.normalize(currencyRepository);
+        ProductRepository products = new ProductRepositoryImpl(productsFile.toString());
+        columnarService = new AggregationService(columnar, matchingRepository, currencyRepository);
+        normalizedService = new AggregationService(normalized, matchingRepository, currencyRepository);
+        streamService = new AggregationService(products, matchingRepository, currencyRepository);
+    }
+
+    @Benchmark
+    public void aggregateColumnarProducts(Blackhole blackhole) {
+        columnarService.aggregateProducts().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void aggregateNormalizedProducts(Blackhole blackhole) {
+        normalizedService.aggregateProducts().forEach(blackhole::consume);
+    }
+
+    @Benchmark
+    public void aggregateProducts(Blackhole blackhole) {
+        streamService.aggregateProducts().forEach(blackhole::consume);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.benchmark;
+
+import com.example.util.DatasetGenerator;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+/**
+ * Input files of a benchmark trial.
+ *
+ * Products, currencies and matchings files are generated once per trial into a
+ * temporary directory from a fixed seed, so every run of the same parameters
+ * measures the same data. Products are spread over matchings by {@code skew},
+ * uniformly by default, and uniformly over currencies.
+ */
+@State(Scope.Benchmark)
+public class BenchmarkDataset {
+
+    private static final long SEED = 42;
+
+    @Param({"1000", "100000", "10000000"})
+    public int productCount;
+
+    @Param({"100", "10000"})
+    public int matchingCount;
+
+    @Param({"1", "100"})
+    public long topPricedCount;
+
+    @Param({"3", "100"})
+    public int currencyCount;
+
+    @Param({"UNIFORM"})
+    public DatasetGenerator.Skew skew;
+
+    protected Path directory;
+    protected Path productsFile;
+    protected Path currenciesFile;
+    protected Path matchingsFile;
+
+    @Setup(Level.Trial)
+    public void createFiles() throws IOException {
+        directory = Files.createTempDirectory("benchmark");
+        productsFile = directory.resolve("data.csv");
+        currenciesFile = directory.resolve("currencies.csv");
+        matchingsFile = directory.resolve("matchings.csv");
+        new DatasetGenerator(SEED, productCount, matchingCount, currencyCount)
+                .topPricedCount(topPricedCount)
+                .matchingSkew(skew)
+                .generate(directory);
+        prepare();
+    }
+
+    /**
+     * Prepares the benchmark once files are generated. JMH doesn't order setup
+     * methods of a class hierarchy, so benchmarks override this method instead
+     * of declaring their own trial setup.
+     */
+    protected void prepare() {
+    }
+
+    @TearDown(Level.Trial)
+    public void deleteFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Object file : files.toArray()) {
+                Files.deleteIfExists((Path) file);
+            }
+        }
+        Files.deleteIfExists(directory);
+    }
+}
@@ -0,0 +1,40 @@
+package com.example.benchmark;
+
+import com.example.util.CsvFileReader;
+import com.example.util.CsvRow;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Parsing stage: rows of the products file read sequentially and in parallel.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class CsvFileReaderBenchmark extends BenchmarkDataset {
+
+    @Benchmark
+    public void readFile(Blackhole blackhole) {
+        try (Stream<CsvRow> rows = CsvFileReader.INSTANCE.readFile(productsFile)) {
+            rows.forEach(blackhole::consume);
+        }
+    }
+
+    @Benchmark
+    public void readFileParallel(Blackhole blackhole) {
+        try (Stream<CsvRow> rows = CsvFileReader.INSTANCE.readFileParallel(productsFile.toString(), ",")) {
+            rows.forEach(blackhole::consume);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.benchmark;
+
+import com.example.repositories.ColumnarProductRepository;
+import com.example.repositories.CurrencyRepository;
+import com.example.repositories.csv.ColumnarProductRepositoryImpl;
+import com.example.repositories.csv.CurrencyRepositoryImpl;
+import com.example.repositories.csv.MatchingRepositoryImpl;
+import com.example.services.AggregationService;
+import com.example.util.AggregationFileWriter;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full pipeline as run by the application: all files loaded, products
+ * aggregated and results written.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class PipelineBenchmark extends BenchmarkDataset {
+
+    @Benchmark
+    public void run() {
+        CurrencyRepository currencyRepository = new CurrencyRepositoryImpl(currenciesFile.toString());
+        ColumnarProductRepository products = new ColumnarProductRepositoryImpl(productsFile.toString());
+        products.normalize(currencyRepository);
+        AggregationService service = new AggregationService(
+                products,
+                new MatchingRepositoryImpl(matchingsFile.toString()),
+                currencyRepository);
+        AggregationFileWriter.INSTANCE.write(service.aggregateProducts(),
+                directory.resolve("top_products.csv").toString());
+    }
+}
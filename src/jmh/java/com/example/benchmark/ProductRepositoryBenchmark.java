@@ -0,0 +1,40 @@
+package com.example.benchmark;
+
+import com.example.repositories.csv.ColumnarProductRepositoryImpl;
+import com.example.repositories.csv.OffHeapProductRepositoryImpl;
+import com.example.repositories.csv.ProductRepositoryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading stage: products file loaded by each of the product repositories.
+ */
+@BenchmarkMode({Mode.Throughput, Mode.SampleTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 5)
+@Fork(1)
+public class ProductRepositoryBenchmark extends BenchmarkDataset {
+
+    @Benchmark
+    public Object loadProducts() {
+        return new ProductRepositoryImpl(productsFile.toString());
+    }
+
+    @Benchmark
+    public Object loadColumnarProducts() {
+        return new ColumnarProductRepositoryImpl(productsFile.toString());
+    }
+
+    @Benchmark
+    public Object loadOffHeapProducts() {
+        return new OffHeapProductRepositoryImpl(productsFile.toString());
+    }
+}
@@ -1,40 +1,106 @@
 package com.example;
 
+import com.example.metrics.PipelineMetrics;
+import com.example.repositories.ColumnarProductRepository;
 import com.example.repositories.CurrencyRepository;
 import com.example.repositories.MatchingRepository;
-import com.example.repositories.ProductRepository;
+import com.example.repositories.csv.ColumnarProductRepositoryImpl;
 import com.example.repositories.csv.CurrencyRepositoryImpl;
 import com.example.repositories.csv.MatchingRepositoryImpl;
-import com.example.repositories.csv.ProductRepositoryImpl;
+import com.example.repositories.csv.OffHeapProductRepositoryImpl;
+import com.example.pojo.AggregationResult;
 import com.example.services.AggregationService;
+import com.example.services.ExternalAggregationService;
+import com.example.services.IncrementalAggregationService;
 import com.example.util.AggregationFileWriter;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.stream.Stream;
+
 /**
- * Application launcher for the given task
+ * Application launcher for the given task.
+ *
+ * Optional arguments are names of products, currencies and matchings files,
+ * each one is looked up in the classpath first and in the filesystem otherwise.
+ * Products are kept outside of the heap if {@code app.offHeap} system property
+ * is set to {@code true}. Matchings are aggregated by {@code app.parallelism}
+ * threads, one by default. If {@code app.memoryBudget} system property is set,
+ * products are aggregated externally through temporary partition files of
+ * about the given number of bytes. If {@code app.snapshot} system property is
+ * set to {@code true}, products are loaded through a binary snapshot kept next
+ * to the products file. If {@code app.incremental} system property is set to
+ * {@code true}, only products appended since the previous run are aggregated,
+ * the state of the previous run is kept next to the products file. If
+ * {@code app.metrics} system property is set to {@code true}, time, rows and
+ * bytes of every stage are exposed over JMX during the run and logged at the end.
  */
 public class App {
     private static final Logger logger = LoggerFactory.getLogger(App.class);
 
+    private final String productsFile;
+    private final String currenciesFile;
+    private final String matchingsFile;
+    private final boolean offHeap;
+    private final int parallelism;
+    private final Long memoryBudget;
+    private final boolean snapshot;
+    private final boolean incremental;
+    private final boolean metrics;
+
+    private App(String[] args) {
+        productsFile = args.length > 0 ? args[0] : "data.csv";
+        currenciesFile = args.length > 1 ? args[1] : "currencies.csv";
+        matchingsFile = args.length > 2 ? args[2] : "matchings.csv";
+        offHeap = Boolean.getBoolean("app.offHeap");
+        parallelism = Integer.getInteger("app.parallelism", 1);
+        memoryBudget = Long.getLong("app.memoryBudget");
+        snapshot = Boolean.getBoolean("app.snapshot");
+        incremental = Boolean.getBoolean("app.incremental");
+        metrics = Boolean.getBoolean("app.metrics");
+    }
+
     public static void main(String[] args) {
         logger.debug("Application started");
-        new App().run();
+        new App(args).run();
         logger.debug("Application finished");
     }
 
     private void run() {
+        if (metrics) {
+            PipelineMetrics.INSTANCE.enable();
+        }
         try {
-            ProductRepository productRepository = new ProductRepositoryImpl("data.csv");
-            CurrencyRepository currencyRepository = new CurrencyRepositoryImpl("currencies.csv");
-            MatchingRepository matchingRepository = new MatchingRepositoryImpl("matchings.csv");
+            CurrencyRepository currencyRepository = new CurrencyRepositoryImpl(currenciesFile);
+            MatchingRepository matchingRepository = new MatchingRepositoryImpl(matchingsFile);
 
-            AggregationService service = new AggregationService(productRepository, matchingRepository, currencyRepository);
-            AggregationFileWriter.INSTANCE.write(service.aggregateProducts());
+            AggregationFileWriter.INSTANCE.write(aggregate(matchingRepository, currencyRepository));
         } catch (Exception ex) {
             logger.error("Error happened during application execution", ex);
         }
+        if (metrics) {
+            logger.info("Pipeline metrics:{}{}", System.lineSeparator(), PipelineMetrics.INSTANCE.summary());
+        }
 
     }
 
+    private Stream<AggregationResult> aggregate(
+            MatchingRepository matchingRepository, CurrencyRepository currencyRepository) {
+
+        if (incremental) {
+            return new IncrementalAggregationService(
+                    productsFile, matchingRepository, currencyRepository).aggregateProducts();
+        }
+        if (memoryBudget != null) {
+            return new ExternalAggregationService(
+                    productsFile, matchingRepository, currencyRepository, memoryBudget).aggregateProducts();
+        }
+        ColumnarProductRepository productRepository = offHeap
+                ? new OffHeapProductRepositoryImpl(productsFile, snapshot)
+                : new ColumnarProductRepositoryImpl(productsFile, snapshot);
+        productRepository.normalize(currencyRepository);
+        return new AggregationService(
+                productRepository, matchingRepository, currencyRepository, parallelism).aggregateProducts();
+    }
+
 }
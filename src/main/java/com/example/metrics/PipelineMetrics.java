@@ -0,0 +1,137 @@
+package com.example.metrics;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Per-stage metrics of the parse, aggregate and write pipeline.
+ *
+ * Metrics are disabled by default. Instrumented code asks for the metrics of
+ * its stage once per file or call through {@link #active(Stage)} and skips
+ * all measurements if it gets {@code null}, so disabled metrics cost a single
+ * check per operation rather than per row. Enabled metrics are exposed as
+ * {@code com.example:type=PipelineMetrics,stage=<stage>} MXBeans.
+ *
+ * Time of a stage is exclusive of the stages it drives, e.g. aggregation that
+ * reads its products doesn't include the time of reading, splitting and
+ * converting them, see {@link StageRecorder}.
+ */
+public class PipelineMetrics {
+    private static final Logger logger = LoggerFactory.getLogger(PipelineMetrics.class);
+
+    public static final PipelineMetrics INSTANCE = new PipelineMetrics();
+
+    /**
+     * Stages of the pipeline.
+     */
+    public enum Stage {
+        /** Loading of file bytes into windows, including faulting mapped pages in. */
+        READ,
+        /** Splitting of bytes into rows by {@code CsvFileReader}. */
+        SPLIT,
+        /** Conversion of rows into entities by repositories. */
+        CONVERT,
+        /** Aggregation of products by aggregation services. */
+        AGGREGATE,
+        /** Writing of results by {@code AggregationFileWriter}. */
+        WRITE
+    }
+
+    private final Map<Stage, StageMetrics> stages = new EnumMap<>(Stage.class);
+
+    private volatile boolean enabled;
+    private boolean registered;
+
+    private PipelineMetrics() {
+        for (Stage stage : Stage.values()) {
+            stages.put(stage, new StageMetrics(stage.name().toLowerCase()));
+        }
+    }
+
+    /**
+     * Enables metrics and registers MXBeans of the stages on the platform
+     * MBean server. Registration failures are logged, metrics still work.
+     */
+    public synchronized void enable() {
+        enabled = true;
+        if (registered) {
+            return;
+        }
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try {
+            for (StageMetrics metrics : stages.values()) {
+                server.registerMBean(metrics, objectName(metrics));
+            }
+            registered = true;
+        } catch (JMException ex) {
+            logger.warn("Can't register pipeline metrics", ex);
+        }
+    }
+
+    /**
+     * Disables metrics, collected values are kept.
+     */
+    public void disable() {
+        enabled = false;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Returns metrics of given stage, whether enabled or not.
+     */
+    public StageMetrics get(Stage stage) {
+        return stages.get(stage);
+    }
+
+    /**
+     * Returns metrics of given stage if metrics are enabled, otherwise {@code null}.
+     */
+    public StageMetrics active(Stage stage) {
+        return enabled ? stages.get(stage) : null;
+    }
+
+    /**
+     * Returns given stream counting its elements as rows leaving given stage
+     * if metrics are enabled, otherwise the stream itself.
+     */
+    public <T> Stream<T> countRowsOut(Stage stage, Stream<T> stream) {
+        StageMetrics metrics = active(stage);
+        return metrics == null ? stream : stream.peek(element -> metrics.addRowsOut(1));
+    }
+
+    /**
+     * Resets metrics of all stages.
+     */
+    public void reset() {
+        stages.values().forEach(StageMetrics::reset);
+    }
+
+    /**
+     * Returns table of metrics of all stages.
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder(String.format("%-10s %12s %12s %12s %14s %14s %14s",
+                "stage", "elapsed ms", "rows in", "rows out", "bytes read", "bytes written", "rows/s"));
+        for (StageMetrics metrics : stages.values()) {
+            summary.append(System.lineSeparator()).append(String.format("%-10s %12d %12d %12d %14d %14d %14.0f",
+                    metrics.getName(), metrics.getElapsedMillis(), metrics.getRowsIn(), metrics.getRowsOut(),
+                    metrics.getBytesRead(), metrics.getBytesWritten(), metrics.getRowsPerSecond()));
+        }
+        return summary.toString();
+    }
+
+    private static ObjectName objectName(StageMetrics metrics) throws JMException {
+        return new ObjectName("com.example:type=PipelineMetrics,stage=" + metrics.getName());
+    }
+}
@@ -0,0 +1,124 @@
+package com.example.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of a single pipeline stage.
+ *
+ * Counters are updated concurrently by every thread working on the stage.
+ * Instrumented code is expected to accumulate values locally and add them in
+ * batches, so updates don't show up in per-row costs.
+ */
+public class StageMetrics implements StageMetricsMXBean {
+
+    private final String name;
+    private final LongAdder nanos = new LongAdder();
+    private final LongAdder rowsIn = new LongAdder();
+    private final LongAdder rowsOut = new LongAdder();
+    private final LongAdder bytesRead = new LongAdder();
+    private final LongAdder bytesWritten = new LongAdder();
+
+    StageMetrics(String name) {
+        this.name = name;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void addNanos(long value) {
+        nanos.add(value);
+    }
+
+    public void addRowsIn(long value) {
+        rowsIn.add(value);
+    }
+
+    public void addRowsOut(long value) {
+        rowsOut.add(value);
+    }
+
+    public void addBytesRead(long value) {
+        bytesRead.add(value);
+    }
+
+    public void addBytesWritten(long value) {
+        bytesWritten.add(value);
+    }
+
+    /**
+     * Returns time spent in the stage in nanoseconds, summed over threads.
+     */
+    public long getElapsedNanos() {
+        return nanos.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getElapsedMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(nanos.sum());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRowsIn() {
+        return rowsIn.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getRowsOut() {
+        return rowsOut.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBytesRead() {
+        return bytesRead.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getBytesWritten() {
+        return bytesWritten.sum();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getRowsPerSecond() {
+        long elapsed = nanos.sum();
+        if (elapsed == 0) {
+            return 0;
+        }
+        long rows = rowsOut.sum();
+        if (rows == 0) {
+            rows = rowsIn.sum();
+        }
+        return rows * 1e9 / elapsed;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void reset() {
+        nanos.reset();
+        rowsIn.reset();
+        rowsOut.reset();
+        bytesRead.reset();
+        bytesWritten.reset();
+    }
+}
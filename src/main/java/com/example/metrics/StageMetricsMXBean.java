@@ -0,0 +1,31 @@
+package com.example.metrics;
+
+/**
+ * Management interface of the metrics of a single pipeline stage.
+ */
+public interface StageMetricsMXBean {
+
+    /**
+     * Returns time spent in the stage in milliseconds, summed over threads.
+     */
+    long getElapsedMillis();
+
+    long getRowsIn();
+
+    long getRowsOut();
+
+    long getBytesRead();
+
+    long getBytesWritten();
+
+    /**
+     * Returns rows leaving the stage per second of its elapsed time, rows
+     * entering it for stages that don't produce rows.
+     */
+    double getRowsPerSecond();
+
+    /**
+     * Resets all counters of the stage.
+     */
+    void reset();
+}
@@ -0,0 +1,109 @@
+package com.example.metrics;
+
+/**
+ * Recorder of measurements of a stage made by a single thread.
+ *
+ * Measurements are meant to cover a batch of rows or a window of bytes, since
+ * each of them reads the clock twice. Time is recorded exclusively: whatever
+ * other recorders of the same thread record while a measurement runs, e.g. a
+ * nested stage pulling rows, is left out of it. Stage times of a thread thus
+ * never add up to more than its wall time.
+ *
+ * Values are accumulated in plain fields and added to the shared
+ * {@link StageMetrics} every {@value #FLUSH_ROWS} rows and on {@link #flush()},
+ * so JMX shows progress of long runs without contention on every row.
+ *
+ * Not thread safe, measurements of a recorder can't overlap.
+ */
+public final class StageRecorder {
+
+    static final int FLUSH_ROWS = 64 * 1024;
+
+    /**
+     * Time recorded so far by all recorders of the thread.
+     */
+    private static final ThreadLocal<long[]> RECORDED = ThreadLocal.withInitial(() -> new long[1]);
+
+    private final StageMetrics metrics;
+
+    private long nanos;
+    private long rowsIn;
+    private long rowsOut;
+    private long bytesRead;
+    private long bytesWritten;
+    private long pendingRows;
+    private long[] recorded;
+    private long recordedAtBegin;
+
+    private StageRecorder(StageMetrics metrics) {
+        this.metrics = metrics;
+    }
+
+    /**
+     * Returns recorder of given stage if metrics are enabled, otherwise {@code null}.
+     */
+    public static StageRecorder of(PipelineMetrics.Stage stage) {
+        StageMetrics metrics = PipelineMetrics.INSTANCE.active(stage);
+        return metrics == null ? null : new StageRecorder(metrics);
+    }
+
+    /**
+     * Returns start time of a measurement.
+     */
+    public long begin() {
+        recorded = RECORDED.get();
+        recordedAtBegin = recorded[0];
+        return System.nanoTime();
+    }
+
+    /**
+     * Records a measurement started at given time, without the time recorded
+     * by other recorders of the thread since then.
+     *
+     * @param begin The value returned by {@link #begin()}
+     * @param in The number of rows that entered the stage
+     * @param out The number of rows that left the stage
+     */
+    public void end(long begin, long in, long out) {
+        long exclusive = Math.max(0, System.nanoTime() - begin - (recorded[0] - recordedAtBegin));
+        recorded[0] += exclusive;
+        nanos += exclusive;
+        rowsIn += in;
+        rowsOut += out;
+        pendingRows += Math.max(in, out);
+        if (pendingRows >= FLUSH_ROWS) {
+            flush();
+        }
+    }
+
+    /**
+     * Records bytes read, they are added with the next flush.
+     */
+    public void addBytesRead(long bytes) {
+        bytesRead += bytes;
+    }
+
+    /**
+     * Records bytes written, they are added with the next flush.
+     */
+    public void addBytesWritten(long bytes) {
+        bytesWritten += bytes;
+    }
+
+    /**
+     * Adds recorded values to the stage metrics.
+     */
+    public void flush() {
+        metrics.addNanos(nanos);
+        metrics.addRowsIn(rowsIn);
+        metrics.addRowsOut(rowsOut);
+        metrics.addBytesRead(bytesRead);
+        metrics.addBytesWritten(bytesWritten);
+        nanos = 0;
+        rowsIn = 0;
+        rowsOut = 0;
+        bytesRead = 0;
+        bytesWritten = 0;
+        pendingRows = 0;
+    }
+}
@@ -0,0 +1,135 @@
+package com.example.repositories;
+
+import com.example.pojo.Product;
+
+import java.util.function.IntConsumer;
+
+/**
+ * Product repository that keeps products as columns of primitive values.
+ *
+ * Products are addressed by row index in the load order. Currency column is
+ * dictionary encoded, so rows keep small int codes of the currency names.
+ *
+ * Once {@link #normalize(CurrencyRepository) normalized}, the repository also
+ * keeps total price, converted total price and converted unit price of every
+ * product, so consumers read them instead of converting prices again.
+ */
+public interface ColumnarProductRepository extends ProductRepository {
+
+    /**
+     * Returns number of products.
+     */
+    int size();
+
+    /**
+     * Returns id of the product at given row.
+     *
+     * @param row The row index
+     */
+    long getId(int row);
+
+    /**
+     * Returns price of the product at given row.
+     *
+     * @param row The row index
+     */
+    double getPrice(int row);
+
+    /**
+     * Returns quantity of the product at given row.
+     *
+     * @param row The row index
+     */
+    int getQuantity(int row);
+
+    /**
+     * Returns matching id of the product at given row.
+     *
+     * @param row The row index
+     */
+    long getMatchingId(int row);
+
+    /**
+     * Returns dictionary code of the currency of the product at given row.
+     *
+     * @param row The row index
+     */
+    int getCurrencyCode(int row);
+
+    /**
+     * Returns number of distinct currencies in the dictionary.
+     */
+    int getCurrencyCount();
+
+    /**
+     * Returns currency name for given dictionary code.
+     *
+     * @param currencyCode The code of the currency
+     */
+    String getCurrency(int currencyCode);
+
+    /**
+     * Passes indices of the rows with given matching id to the consumer in
+     * ascending order.
+     *
+     * @param matchingId The matching id
+     * @param consumer The consumer of row indices
+     */
+    void forEachRow(long matchingId, IntConsumer consumer);
+
+    /**
+     * Computes price columns of all products with ratios of given currency
+     * repository. Columns are computed once, later calls with the same
+     * currency repository do nothing. Converted prices of products with
+     * unknown currency are {@code NaN}.
+     *
+     * @param currencyRepository The repository of currency ratios
+     */
+    void normalize(CurrencyRepository currencyRepository);
+
+    /**
+     * Returns whether price columns were computed with given currency repository.
+     *
+     * @param currencyRepository The repository of currency ratios
+     */
+    boolean isNormalizedFor(CurrencyRepository currencyRepository);
+
+    /**
+     * Returns price multiplied by quantity of the product at given row.
+     *
+     * @param row The row index
+     * @throws IllegalStateException If the repository is not normalized
+     */
+    double getTotalPrice(int row);
+
+    /**
+     * Returns total price converted by currency ratio of the product at given row.
+     *
+     * @param row The row index
+     * @throws IllegalStateException If the repository is not normalized
+     */
+    double getConvertedTotalPrice(int row);
+
+    /**
+     * Returns converted total price divided by quantity of the product at given row.
+     *
+     * @param row The row index
+     * @throws IllegalStateException If the repository is not normalized
+     */
+    double getConvertedUnitPrice(int row);
+
+    /**
+     * Returns product at given row.
+     *
+     * @param row The row index
+     */
+    default Product getProduct(int row) {
+        return new Product(
+                getId(row),
+                getPrice(row),
+                getCurrency(getCurrencyCode(row)),
+                getQuantity(row),
+                getMatchingId(row)
+        );
+    }
+}
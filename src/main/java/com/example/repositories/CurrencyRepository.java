@@ -14,4 +14,25 @@ public interface CurrencyRepository {
      * @param currency The currency name
      */
     Optional<Double> getRatioForCurrency(String currency);
+
+    /**
+     * Returns dictionary code for given currency or {@code -1} if currency
+     * is not found.
+     *
+     * Codes are small non-negative numbers assigned once when currencies are
+     * loaded, lookup of the name is case insensitive.
+     *
+     * @param currency The currency name
+     */
+    int getCurrencyCode(String currency);
+
+    /**
+     * Returns ratio for the currency with given dictionary code.
+     *
+     * @param currencyCode The code returned by {@link #getCurrencyCode(String)}
+     *
+     * @throws IndexOutOfBoundsException
+     *         If {@code currencyCode} is not known to the repository
+     */
+    double getRatio(int currencyCode);
 }
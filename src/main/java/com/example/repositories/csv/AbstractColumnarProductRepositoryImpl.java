@@ -0,0 +1,317 @@
+package com.example.repositories.csv;
+
+import com.example.exceptions.ParseException;
+import com.example.pojo.Product;
+import com.example.repositories.ColumnarProductRepository;
+import com.example.repositories.CurrencyRepository;
+import com.example.util.CsvFileReader;
+import com.example.util.CsvRow;
+import org.apache.commons.lang3.StringUtils;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkNotNull;
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Abstract class containing loading, currency dictionary and matching index
+ * shared by columnar product repositories. Implementations decide where
+ * the column values are stored.
+ */
+abstract class AbstractColumnarProductRepositoryImpl implements ColumnarProductRepository {
+
+    private final Map<String, Integer> currencyDictionary = new HashMap<>();
+    private final List<String> currencies = new ArrayList<>();
+
+    private int size;
+    private MatchingIndex matchingIndex;
+    private PriceColumns priceColumns;
+
+    /**
+     * Loads products of given file into the columns, optionally through a binary
+     * snapshot kept next to the file. Valid snapshot is loaded instead of parsing
+     * the file, otherwise the snapshot is written once the file is parsed. Has to
+     * be called once by the implementation after its storage is initialized.
+     *
+     * Shards of the file are parsed concurrently and appended in order of the
+     * shards, snapshot is used only if the file is not sharded.
+     *
+     * @param csvFileName The CSV file name, directory or glob of shards
+     * @param snapshot Whether products should be loaded through a snapshot
+     * @see ProductSnapshot
+     * @see CsvFileReader#resolveShards(String)
+     */
+    protected void load(String csvFileName, boolean snapshot) {
+        checkState(StringUtils.isNotEmpty(csvFileName), "CSV file name should be present");
+        try {
+            List<Path> shards = CsvFileReader.INSTANCE.resolveShards(csvFileName);
+            if (snapshot && shards.size() == 1) {
+                ProductSnapshot productSnapshot = new ProductSnapshot(shards.get(0));
+                if (!productSnapshot.read(new SnapshotAppender())) {
+                    parse(shards);
+                    productSnapshot.write(this);
+                }
+            } else {
+                parse(shards);
+            }
+        } catch (Exception ex) {
+            throw new ParseException(ex);
+        }
+        loaded(size);
+        matchingIndex = MatchingIndex.build(size, this::getMatchingId, this::allocateIndex);
+    }
+
+    /**
+     * Parses single file straight into the columns. Multiple shards are parsed
+     * concurrently into shard buffers, each buffer is appended as soon as the
+     * shards before it are and released once appended, so only as many buffers
+     * as there are reading threads are held at a time.
+     */
+    private void parse(List<Path> shards) {
+        if (shards.size() == 1) {
+            try (Stream<CsvRow> rows = CsvFileReader.INSTANCE.readFile(shards.get(0))) {
+                appendAll(rows, this::add);
+            }
+            return;
+        }
+        CsvFileReader.INSTANCE.readShards(shards, ",", rows -> {
+            ParsedShard shard = new ParsedShard();
+            appendAll(rows, shard::add);
+            return shard;
+        }, this::append);
+    }
+
+    private static void appendAll(Stream<CsvRow> rows, ProductRowBinder.ProductSink sink) {
+        new ProductRowBinder().appendAll(rows, sink);
+    }
+
+    /**
+     * Stores values of the product at given row, rows are appended in ascending order.
+     */
+    protected abstract void append(int row, long id, double price, int currencyCode, int quantity, long matchingId);
+
+    /**
+     * Called once all rows are appended.
+     *
+     * @param size The number of appended rows
+     */
+    protected void loaded(int size) {
+    }
+
+    /**
+     * Allocates buffer for row numbers of the matching index.
+     *
+     * @param size The number of row numbers
+     */
+    protected abstract IntBuffer allocateIndex(int size);
+
+    /**
+     * Allocates buffer for a chunk of a price column.
+     *
+     * @param size The number of prices
+     */
+    protected abstract DoubleBuffer allocatePrices(int size);
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Product> findAll() {
+        return IntStream.range(0, size)
+                .mapToObj(this::getProduct);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Stream<Product> findProductsByMatchingId(Long matchingId) {
+        return matchingIndex.rows(matchingId)
+                .mapToObj(this::getProduct);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCurrencyCount() {
+        return currencies.size();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String getCurrency(int currencyCode) {
+        return currencies.get(currencyCode);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void forEachRow(long matchingId, IntConsumer consumer) {
+        matchingIndex.forEachRow(matchingId, consumer);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public synchronized void normalize(CurrencyRepository currencyRepository) {
+        checkNotNull(currencyRepository);
+        if (!isNormalizedFor(currencyRepository)) {
+            priceColumns = PriceColumns.compute(this, currencyRepository, this::allocatePrices);
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean isNormalizedFor(CurrencyRepository currencyRepository) {
+        return priceColumns != null && priceColumns.isFor(currencyRepository);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getTotalPrice(int row) {
+        return normalized().totalPrice(row);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getConvertedTotalPrice(int row) {
+        return normalized().convertedTotalPrice(row);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getConvertedUnitPrice(int row) {
+        return normalized().convertedUnitPrice(row);
+    }
+
+    private PriceColumns normalized() {
+        checkState(priceColumns != null, "Products should be normalized");
+        return priceColumns;
+    }
+
+    private void add(long id, double price, String currency, int quantity, long matchingId) {
+        validate(price, currency, quantity);
+        checkState(size < Integer.MAX_VALUE, "Too many products");
+        append(size, id, price, currencyCode(currency), quantity, matchingId);
+        size++;
+    }
+
+    private void append(ParsedShard shard) {
+        checkState((long) size + shard.size <= Integer.MAX_VALUE, "Too many products");
+        int[] codes = new int[shard.currencies.size()];
+        for (int code = 0; code < codes.length; code++) {
+            codes[code] = currencyCode(shard.currencies.get(code));
+        }
+        for (int row = 0; row < shard.size; row++) {
+            append(size++, shard.ids[row], shard.prices[row], codes[shard.currencyCodes[row]],
+                    shard.quantities[row], shard.matchingIds[row]);
+        }
+    }
+
+    private static void validate(double price, String currency, int quantity) {
+        checkState(price >= 0, "Price should be greater than or equal to zero");
+        checkNotNull(currency);
+        checkState(quantity >= 0, "Quantity should be greater or equal to zero");
+    }
+
+    private int currencyCode(String currency) {
+        Integer code = currencyDictionary.get(currency);
+        if (code == null) {
+            code = currencies.size();
+            currencyDictionary.put(currency, code);
+            currencies.add(currency);
+        }
+        return code;
+    }
+
+    /**
+     * Appends currencies and rows of a snapshot, which were validated when
+     * the snapshot was written.
+     */
+    private class SnapshotAppender implements ProductSnapshot.Sink {
+
+        @Override
+        public void currency(String name) {
+            currencyCode(name);
+        }
+
+        @Override
+        public void row(long id, double price, int currencyCode, int quantity, long matchingId) {
+            append(size++, id, price, currencyCode, quantity, matchingId);
+        }
+    }
+
+    /**
+     * Rows of a shard parsed apart from the columns, currencies are encoded
+     * with the dictionary of the shard.
+     */
+    private static class ParsedShard {
+        private final Map<String, Integer> currencyDictionary = new HashMap<>();
+        private final List<String> currencies = new ArrayList<>();
+        private long[] ids = new long[0];
+        private double[] prices = new double[0];
+        private int[] currencyCodes = new int[0];
+        private int[] quantities = new int[0];
+        private long[] matchingIds = new long[0];
+        private int size;
+
+        void add(long id, double price, String currency, int quantity, long matchingId) {
+            validate(price, currency, quantity);
+            checkState(size < Integer.MAX_VALUE, "Too many products");
+            if (size == ids.length) {
+                resize((int) Math.min(Math.max(1024, 2L * size), Integer.MAX_VALUE - 8));
+            }
+            Integer code = currencyDictionary.get(currency);
+            if (code == null) {
+                code = currencies.size();
+                currencyDictionary.put(currency, code);
+                currencies.add(currency);
+            }
+            ids[size] = id;
+            prices[size] = price;
+            currencyCodes[size] = code;
+            quantities[size] = quantity;
+            matchingIds[size] = matchingId;
+            size++;
+        }
+
+        private void resize(int capacity) {
+            ids = Arrays.copyOf(ids, capacity);
+            prices = Arrays.copyOf(prices, capacity);
+            currencyCodes = Arrays.copyOf(currencyCodes, capacity);
+            quantities = Arrays.copyOf(quantities, capacity);
+            matchingIds = Arrays.copyOf(matchingIds, capacity);
+        }
+    }
+}
@@ -1,14 +1,20 @@
 package com.example.repositories.csv;
 
 import com.example.exceptions.ParseException;
+import com.example.metrics.PipelineMetrics;
+import com.example.metrics.StageRecorder;
 import com.example.util.CsvFileReader;
 import com.example.util.CsvRow;
+import com.example.util.CsvSchema;
+import com.google.common.collect.ImmutableListMultimap;
+import com.google.common.collect.Multimaps;
 import org.apache.commons.lang3.StringUtils;
 
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
 import java.util.function.Function;
 import java.util.function.Supplier;
-import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static com.google.common.base.Preconditions.checkState;
@@ -19,31 +25,54 @@ import static com.google.common.base.Preconditions.checkState;
  */
 abstract class AbstractRepositoryImpl<T> {
 
+    private final List<T> entities;
     private final Supplier<Stream<T>> repository;
 
     AbstractRepositoryImpl(String csvFileName) {
         checkState(StringUtils.isNotEmpty(csvFileName), "CSV file name should be present");
-        repository = fileToEntity(csvFileName, this::toEntity);
+        entities = fileToEntity(csvFileName, this::bind);
+        repository = entities::stream;
     }
 
     /**
-     * Converts given file to supplier of Stream containing elements of repository type.
+     * Converts given file to list containing elements of repository type.
      *
-     * @param fileName The CSV file name
-     * @param converter CsvRow to repository type converter
-     * @return Supplier of Stream of entities
+     * Shards of the file are read and converted concurrently, entities keep
+     * the order of the shards.
+     *
+     * @param fileName The CSV file name, directory or glob of shards
+     * @param binder Function binding schema of the file to CsvRow to repository type converter
+     * @return List of entities
+     * @see CsvFileReader#resolveShards(String)
      */
-    protected Supplier<Stream<T>> fileToEntity(String fileName, Function<CsvRow, T> converter) {
+    protected List<T> fileToEntity(String fileName, Function<CsvSchema, Function<CsvRow, T>> binder) {
         try {
-            List<T> asList = CsvFileReader.INSTANCE.readFile(fileName)
-                    .map(converter)
-                    .collect(Collectors.toList());
-            return asList::stream;
+            List<List<T>> shards = CsvFileReader.INSTANCE.readShards(
+                    CsvFileReader.INSTANCE.resolveShards(fileName), ",", rows -> convert(rows, binder));
+            if (shards.size() == 1) {
+                return shards.get(0);
+            }
+            List<T> converted = new ArrayList<>(shards.stream().mapToInt(List::size).sum());
+            shards.forEach(converted::addAll);
+            return converted;
         } catch (Exception ex) {
             throw new ParseException(ex);
         }
     }
 
+    private static <T> List<T> convert(Stream<CsvRow> rows, Function<CsvSchema, Function<CsvRow, T>> binder) {
+        BoundConverter<T> converter = new BoundConverter<>(binder);
+        List<T> converted = new ArrayList<>();
+        Iterator<CsvRow> iterator = rows.iterator();
+        CsvRow[] batch = new CsvRow[RowBatches.BATCH_ROWS];
+        int count;
+        while ((count = RowBatches.next(iterator, batch)) > 0) {
+            converter.convert(batch, count, converted);
+        }
+        converter.flushMetrics();
+        return converted;
+    }
+
     /**
      * Returns stream of entities from internal supplier.
      *
@@ -54,14 +83,67 @@ abstract class AbstractRepositoryImpl<T> {
     }
 
     /**
-     * Returns converter from CSV row to entity.
+     * Groups loaded entities by the key produced by given function.
+     *
+     * Meant to be called once right after the data is loaded, so that lookups
+     * by key cost the size of the group instead of the size of the repository.
+     *
+     * @param keyFunction Function extracting key from the entity
+     * @param <K> Type of the key
+     * @return Immutable multimap preserving the load order inside each group
+     */
+    <K> ImmutableListMultimap<K, T> indexBy(Function<T, K> keyFunction) {
+        return Multimaps.index(entities, keyFunction::apply);
+    }
+
+    /**
+     * Returns converter from CSV row to entity for rows of given schema.
+     *
+     * Called once per schema, so column indices can be resolved here and
+     * cells can be read by index in the returned converter.
      *
-     * Throws {@code RuntimeException} if converting failed due to any reason.
+     * Throws {@code RuntimeException} if binding or converting failed due to any reason.
      *
-     * @param row The CSV row
+     * @param schema The schema of CSV rows
      * @return Converter of row
      *
      * @throws RuntimeException
      */
-    protected abstract T toEntity(CsvRow row);
+    protected abstract Function<CsvRow, T> bind(CsvSchema schema);
+
+    /**
+     * Converter that binds the schema of the rows once and reuses the result
+     * while rows share the same schema. Conversion is recorded once per batch.
+     */
+    private static class BoundConverter<T> {
+        private final Function<CsvSchema, Function<CsvRow, T>> binder;
+        private final StageRecorder recorder = StageRecorder.of(PipelineMetrics.Stage.CONVERT);
+        private CsvSchema schema;
+        private Function<CsvRow, T> converter;
+
+        BoundConverter(Function<CsvSchema, Function<CsvRow, T>> binder) {
+            this.binder = binder;
+        }
+
+        void convert(CsvRow[] rows, int count, List<T> target) {
+            long begin = recorder != null ? recorder.begin() : 0;
+            for (int i = 0; i < count; i++) {
+                CsvRow row = rows[i];
+                if (row.getSchema() != schema) {
+                    converter = binder.apply(row.getSchema());
+                    schema = row.getSchema();
+                }
+                target.add(converter.apply(row));
+            }
+            if (recorder != null) {
+                recorder.end(begin, count, count);
+            }
+        }
+
+        void flushMetrics() {
+            if (recorder != null) {
+                recorder.flush();
+            }
+        }
+    }
 }
@@ -0,0 +1,116 @@
+package com.example.repositories.csv;
+
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Product repository implementation for database given as CSV file that keeps
+ * products as struct of arrays.
+ *
+ * Ids, prices, quantities and matching ids are kept in primitive arrays and the
+ * currency column is dictionary encoded, so a product costs a few dozens of bytes
+ * without object headers and references.
+ *
+ * @see com.example.repositories.ColumnarProductRepository
+ */
+public class ColumnarProductRepositoryImpl extends AbstractColumnarProductRepositoryImpl {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private long[] ids = new long[INITIAL_CAPACITY];
+    private double[] prices = new double[INITIAL_CAPACITY];
+    private int[] quantities = new int[INITIAL_CAPACITY];
+    private long[] matchingIds = new long[INITIAL_CAPACITY];
+    private int[] currencyCodes = new int[INITIAL_CAPACITY];
+
+    public ColumnarProductRepositoryImpl(String csvFileName) {
+        this(csvFileName, false);
+    }
+
+    /**
+     * Creates repository loading products through a binary snapshot kept next
+     * to the CSV file if {@code snapshot} is set.
+     *
+     * @param csvFileName The CSV file name
+     * @param snapshot Whether products should be loaded through a snapshot
+     */
+    public ColumnarProductRepositoryImpl(String csvFileName, boolean snapshot) {
+        load(csvFileName, snapshot);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getId(int row) {
+        return ids[row];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getPrice(int row) {
+        return prices[row];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getQuantity(int row) {
+        return quantities[row];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMatchingId(int row) {
+        return matchingIds[row];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCurrencyCode(int row) {
+        return currencyCodes[row];
+    }
+
+    @Override
+    protected void append(int row, long id, double price, int currencyCode, int quantity, long matchingId) {
+        if (row == ids.length) {
+            resize((int) Math.min(2L * ids.length, Integer.MAX_VALUE - 8));
+        }
+        ids[row] = id;
+        prices[row] = price;
+        quantities[row] = quantity;
+        matchingIds[row] = matchingId;
+        currencyCodes[row] = currencyCode;
+    }
+
+    @Override
+    protected void loaded(int size) {
+        resize(size);
+    }
+
+    @Override
+    protected IntBuffer allocateIndex(int size) {
+        return IntBuffer.allocate(size);
+    }
+
+    @Override
+    protected DoubleBuffer allocatePrices(int size) {
+        return DoubleBuffer.allocate(size);
+    }
+
+    private void resize(int capacity) {
+        ids = Arrays.copyOf(ids, capacity);
+        prices = Arrays.copyOf(prices, capacity);
+        quantities = Arrays.copyOf(quantities, capacity);
+        matchingIds = Arrays.copyOf(matchingIds, capacity);
+        currencyCodes = Arrays.copyOf(currencyCodes, capacity);
+    }
+}
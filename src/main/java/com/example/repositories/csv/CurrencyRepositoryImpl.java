@@ -3,29 +3,56 @@ package com.example.repositories.csv;
 import com.example.repositories.CurrencyRepository;
 import com.example.pojo.Currency;
 import com.example.util.CsvRow;
+import com.example.util.CsvSchema;
 
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 /**
  * Currency repository implementation for database given as CSV file.
  *
+ * Currencies are dictionary encoded on load: each normalised name gets a small
+ * int code and ratios are kept in an array indexed by that code.
+ *
  * @see CurrencyRepository
  */
 public class CurrencyRepositoryImpl extends AbstractRepositoryImpl<Currency> implements CurrencyRepository {
 
+    private final Map<String, Integer> codes = new HashMap<>();
+    private final double[] ratios;
+
     public CurrencyRepositoryImpl(String currenciesFile) {
         super(currenciesFile);
+        List<Currency> currencies = getRepository().collect(Collectors.toList());
+        double[] loaded = new double[currencies.size()];
+        for (Currency currency : currencies) {
+            String name = normalise(currency.getName());
+            if (!codes.containsKey(name)) {
+                int code = codes.size();
+                codes.put(name, code);
+                loaded[code] = currency.getRatio();
+            }
+        }
+        ratios = Arrays.copyOf(loaded, codes.size());
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    protected Currency toEntity(CsvRow row) {
-        Optional<String> currency = row.get("currency");
-        return new Currency(
-                currency.get(),
-                row.get("ratio", Double::valueOf).get());
+    protected Function<CsvRow, Currency> bind(CsvSchema schema) {
+        int currency = schema.requireIndex("currency");
+        int ratio = schema.requireIndex("ratio");
+
+        return row -> new Currency(
+                row.get(currency),
+                row.getDouble(ratio));
     }
 
     /**
@@ -33,9 +60,34 @@ public class CurrencyRepositoryImpl extends AbstractRepositoryImpl<Currency> imp
      */
     @Override
     public Optional<Double> getRatioForCurrency(String currency) {
-        return getRepository()
-                .filter(c -> c.getName().equalsIgnoreCase(currency))
-                .map(Currency::getRatio)
-                .findFirst();
+        int code = getCurrencyCode(currency);
+        return code < 0 ? Optional.empty() : Optional.of(ratios[code]);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCurrencyCode(String currency) {
+        if (currency == null) {
+            return -1;
+        }
+        Integer code = codes.get(currency);
+        if (code == null) {
+            code = codes.get(normalise(currency));
+        }
+        return code == null ? -1 : code;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getRatio(int currencyCode) {
+        return ratios[currencyCode];
+    }
+
+    private static String normalise(String currency) {
+        return currency.toUpperCase(Locale.ROOT);
     }
 }
@@ -0,0 +1,91 @@
+package com.example.repositories.csv;
+
+import java.nio.IntBuffer;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.IntConsumer;
+import java.util.function.IntFunction;
+import java.util.function.IntToLongFunction;
+import java.util.stream.IntStream;
+
+/**
+ * Index of row numbers grouped by matching id.
+ *
+ * Rows of each matching are kept contiguously in ascending order, so a lookup
+ * costs the size of its group.
+ */
+class MatchingIndex {
+
+    private final Map<Long, Integer> groups;
+    private final int[] offsets;
+    private final IntBuffer rows;
+
+    private MatchingIndex(Map<Long, Integer> groups, int[] offsets, IntBuffer rows) {
+        this.groups = groups;
+        this.offsets = offsets;
+        this.rows = rows;
+    }
+
+    /**
+     * Builds index for given rows.
+     *
+     * @param size The number of rows
+     * @param matchingIdOfRow Function returning matching id of the row
+     * @param allocator Function allocating buffer for given number of row numbers
+     * @return Index of rows
+     */
+    static MatchingIndex build(int size, IntToLongFunction matchingIdOfRow, IntFunction<IntBuffer> allocator) {
+        Map<Long, Integer> groups = new HashMap<>();
+        int[] counts = new int[16];
+        for (int row = 0; row < size; row++) {
+            int group = groups.computeIfAbsent(matchingIdOfRow.applyAsLong(row), id -> groups.size());
+            if (group == counts.length) {
+                counts = Arrays.copyOf(counts, 2 * counts.length);
+            }
+            counts[group]++;
+        }
+
+        int[] offsets = new int[groups.size() + 1];
+        for (int group = 0; group < groups.size(); group++) {
+            offsets[group + 1] = offsets[group] + counts[group];
+        }
+
+        int[] cursors = Arrays.copyOf(offsets, groups.size());
+        IntBuffer rows = allocator.apply(size);
+        for (int row = 0; row < size; row++) {
+            int group = groups.get(matchingIdOfRow.applyAsLong(row));
+            rows.put(cursors[group]++, row);
+        }
+        return new MatchingIndex(groups, offsets, rows);
+    }
+
+    /**
+     * Passes rows with given matching id to the consumer in ascending order.
+     *
+     * @param matchingId The matching id
+     * @param consumer The consumer of row numbers
+     */
+    void forEachRow(long matchingId, IntConsumer consumer) {
+        Integer group = groups.get(matchingId);
+        if (group == null) {
+            return;
+        }
+        for (int i = offsets[group]; i < offsets[group + 1]; i++) {
+            consumer.accept(rows.get(i));
+        }
+    }
+
+    /**
+     * Returns rows with given matching id in ascending order.
+     *
+     * @param matchingId The matching id
+     */
+    IntStream rows(long matchingId) {
+        Integer group = groups.get(matchingId);
+        if (group == null) {
+            return IntStream.empty();
+        }
+        return IntStream.range(offsets[group], offsets[group + 1]).map(rows::get);
+    }
+}
@@ -3,8 +3,10 @@ package com.example.repositories.csv;
 import com.example.repositories.MatchingRepository;
 import com.example.pojo.Matching;
 import com.example.util.CsvRow;
+import com.example.util.CsvSchema;
 
 import java.util.Optional;
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
@@ -40,9 +42,12 @@ public class MatchingRepositoryImpl extends AbstractRepositoryImpl<Matching> imp
      * {@inheritDoc}
      */
     @Override
-    protected Matching toEntity(CsvRow row) {
-        return new Matching(
-                row.get("matching_id", Long::valueOf).get(),
-                row.get("top_priced_count", Long::valueOf).get());
+    protected Function<CsvRow, Matching> bind(CsvSchema schema) {
+        int matchingId = schema.requireIndex("matching_id");
+        int topPricedCount = schema.requireIndex("top_priced_count");
+
+        return row -> new Matching(
+                row.getLong(matchingId),
+                row.getLong(topPricedCount));
     }
 }
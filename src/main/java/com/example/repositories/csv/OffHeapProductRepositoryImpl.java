@@ -0,0 +1,149 @@
+package com.example.repositories.csv;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Product repository implementation for database given as CSV file that keeps
+ * products outside of the Java heap.
+ *
+ * Each product is a fixed-width record of {@value #RECORD_BYTES} bytes stored in
+ * chunks of direct buffers, the matching index is kept in a direct buffer too.
+ * Heap usage depends only on the number of distinct currencies and matchings,
+ * so heap size and GC pauses stay flat as the number of products grows. Sharded
+ * input additionally holds a parsed shard per reading thread on the heap until
+ * the shard is appended. Direct memory is limited by
+ * {@code -XX:MaxDirectMemorySize}.
+ *
+ * @see com.example.repositories.ColumnarProductRepository
+ */
+public class OffHeapProductRepositoryImpl extends AbstractColumnarProductRepositoryImpl {
+
+    static final int RECORD_BYTES = 32;
+
+    private static final int ID_OFFSET = 0;
+    private static final int PRICE_OFFSET = 8;
+    private static final int MATCHING_ID_OFFSET = 16;
+    private static final int QUANTITY_OFFSET = 24;
+    private static final int CURRENCY_CODE_OFFSET = 28;
+
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+    private static final int INITIAL_CHUNK_RECORDS = 1024;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+
+    public OffHeapProductRepositoryImpl(String csvFileName) {
+        this(csvFileName, false);
+    }
+
+    /**
+     * Creates repository loading products through a binary snapshot kept next
+     * to the CSV file if {@code snapshot} is set.
+     *
+     * @param csvFileName The CSV file name
+     * @param snapshot Whether products should be loaded through a snapshot
+     */
+    public OffHeapProductRepositoryImpl(String csvFileName, boolean snapshot) {
+        load(csvFileName, snapshot);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getId(int row) {
+        return chunk(row).getLong(offset(row) + ID_OFFSET);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double getPrice(int row) {
+        return chunk(row).getDouble(offset(row) + PRICE_OFFSET);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getQuantity(int row) {
+        return chunk(row).getInt(offset(row) + QUANTITY_OFFSET);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public long getMatchingId(int row) {
+        return chunk(row).getLong(offset(row) + MATCHING_ID_OFFSET);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int getCurrencyCode(int row) {
+        return chunk(row).getInt(offset(row) + CURRENCY_CODE_OFFSET);
+    }
+
+    @Override
+    protected void append(int row, long id, double price, int currencyCode, int quantity, long matchingId) {
+        int offset = offset(row);
+        ByteBuffer chunk = ensureCapacity(row >>> CHUNK_SHIFT, offset + RECORD_BYTES);
+        chunk.putLong(offset + ID_OFFSET, id);
+        chunk.putDouble(offset + PRICE_OFFSET, price);
+        chunk.putLong(offset + MATCHING_ID_OFFSET, matchingId);
+        chunk.putInt(offset + QUANTITY_OFFSET, quantity);
+        chunk.putInt(offset + CURRENCY_CODE_OFFSET, currencyCode);
+    }
+
+    @Override
+    protected IntBuffer allocateIndex(int size) {
+        checkState(size <= Integer.MAX_VALUE / Integer.BYTES, "Too many products for off-heap index");
+        return allocate(size * Integer.BYTES).asIntBuffer();
+    }
+
+    @Override
+    protected DoubleBuffer allocatePrices(int size) {
+        return allocate(size * Double.BYTES).asDoubleBuffer();
+    }
+
+    /**
+     * Returns chunk with given index that has at least given capacity, the last
+     * chunk grows by doubling until it reaches the full chunk size.
+     */
+    private ByteBuffer ensureCapacity(int index, int capacity) {
+        if (index == chunks.size()) {
+            chunks.add(allocate(INITIAL_CHUNK_RECORDS * RECORD_BYTES));
+        }
+        ByteBuffer chunk = chunks.get(index);
+        if (chunk.capacity() < capacity) {
+            ByteBuffer grown = allocate(Math.min(2 * chunk.capacity(), RECORD_BYTES << CHUNK_SHIFT));
+            chunk.clear();
+            grown.put(chunk);
+            chunks.set(index, grown);
+            chunk = grown;
+        }
+        return chunk;
+    }
+
+    private static ByteBuffer allocate(int capacity) {
+        return ByteBuffer.allocateDirect(capacity).order(ByteOrder.nativeOrder());
+    }
+
+    private ByteBuffer chunk(int row) {
+        return chunks.get(row >>> CHUNK_SHIFT);
+    }
+
+    private static int offset(int row) {
+        return (row & CHUNK_MASK) * RECORD_BYTES;
+    }
+}
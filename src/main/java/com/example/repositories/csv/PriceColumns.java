@@ -0,0 +1,104 @@
+package com.example.repositories.csv;
+
+import com.example.metrics.PipelineMetrics;
+import com.example.metrics.StageRecorder;
+import com.example.repositories.ColumnarProductRepository;
+import com.example.repositories.CurrencyRepository;
+
+import java.nio.DoubleBuffer;
+import java.util.function.IntFunction;
+
+/**
+ * Price columns derived from prices, quantities and currency ratios of
+ * a columnar repository.
+ *
+ * Ratios are looked up once per currency code and every product is converted
+ * once, in the same order of operations as the aggregation, so precomputed
+ * values are the same as the ones computed on the fly. Columns are cut into
+ * chunks allocated by the repository, so they are kept wherever the repository
+ * keeps its own columns.
+ */
+final class PriceColumns {
+
+    private static final int CHUNK_SHIFT = 20;
+    private static final int CHUNK_MASK = (1 << CHUNK_SHIFT) - 1;
+
+    private final CurrencyRepository currencyRepository;
+    private final DoubleBuffer[] totalPrices;
+    private final DoubleBuffer[] convertedTotalPrices;
+    private final DoubleBuffer[] convertedUnitPrices;
+
+    private PriceColumns(CurrencyRepository currencyRepository, int chunks) {
+        this.currencyRepository = currencyRepository;
+        this.totalPrices = new DoubleBuffer[chunks];
+        this.convertedTotalPrices = new DoubleBuffer[chunks];
+        this.convertedUnitPrices = new DoubleBuffer[chunks];
+    }
+
+    /**
+     * Computes price columns of all products of the repository.
+     *
+     * @param products The products to convert
+     * @param currencyRepository The repository of currency ratios
+     * @param allocator The allocator of a chunk of given number of values
+     */
+    static PriceColumns compute(ColumnarProductRepository products, CurrencyRepository currencyRepository,
+                                IntFunction<DoubleBuffer> allocator) {
+        StageRecorder recorder = StageRecorder.of(PipelineMetrics.Stage.CONVERT);
+        long begin = recorder != null ? recorder.begin() : 0;
+        double[] codeRatios = new double[products.getCurrencyCount()];
+        for (int code = 0; code < codeRatios.length; code++) {
+            int currencyCode = currencyRepository.getCurrencyCode(products.getCurrency(code));
+            codeRatios[code] = currencyCode >= 0 ? currencyRepository.getRatio(currencyCode) : Double.NaN;
+        }
+
+        int size = products.size();
+        PriceColumns columns = new PriceColumns(currencyRepository, (size + CHUNK_MASK) >>> CHUNK_SHIFT);
+        if (recorder != null) {
+            recorder.end(begin, 0, 0);
+        }
+        for (int chunk = 0; chunk < columns.totalPrices.length; chunk++) {
+            int from = chunk << CHUNK_SHIFT;
+            int length = Math.min(CHUNK_MASK + 1, size - from);
+            begin = recorder != null ? recorder.begin() : 0;
+            DoubleBuffer totals = allocator.apply(length);
+            DoubleBuffer converted = allocator.apply(length);
+            DoubleBuffer units = allocator.apply(length);
+            for (int i = 0; i < length; i++) {
+                int row = from + i;
+                int quantity = products.getQuantity(row);
+                double totalPrice = quantity * products.getPrice(row);
+                double convertedTotalPrice = totalPrice * codeRatios[products.getCurrencyCode(row)];
+                totals.put(i, totalPrice);
+                converted.put(i, convertedTotalPrice);
+                units.put(i, convertedTotalPrice / quantity);
+            }
+            columns.totalPrices[chunk] = totals;
+            columns.convertedTotalPrices[chunk] = converted;
+            columns.convertedUnitPrices[chunk] = units;
+            if (recorder != null) {
+                recorder.end(begin, length, length);
+            }
+        }
+        if (recorder != null) {
+            recorder.flush();
+        }
+        return columns;
+    }
+
+    boolean isFor(CurrencyRepository currencyRepository) {
+        return this.currencyRepository == currencyRepository;
+    }
+
+    double totalPrice(int row) {
+        return totalPrices[row >>> CHUNK_SHIFT].get(row & CHUNK_MASK);
+    }
+
+    double convertedTotalPrice(int row) {
+        return convertedTotalPrices[row >>> CHUNK_SHIFT].get(row & CHUNK_MASK);
+    }
+
+    double convertedUnitPrice(int row) {
+        return convertedUnitPrices[row >>> CHUNK_SHIFT].get(row & CHUNK_MASK);
+    }
+}
@@ -3,7 +3,10 @@ package com.example.repositories.csv;
 import com.example.pojo.Product;
 import com.example.repositories.ProductRepository;
 import com.example.util.CsvRow;
+import com.example.util.CsvSchema;
+import com.google.common.collect.ImmutableListMultimap;
 
+import java.util.function.Function;
 import java.util.stream.Stream;
 
 /**
@@ -13,6 +16,8 @@ import java.util.stream.Stream;
  */
 public class ProductRepositoryImpl extends AbstractRepositoryImpl<Product> implements ProductRepository {
 
+    private final ImmutableListMultimap<Long, Product> productsByMatchingId = indexBy(Product::getMatchingId);
+
     public ProductRepositoryImpl(String csvFileName) {
         super(csvFileName);
     }
@@ -30,21 +35,14 @@ public class ProductRepositoryImpl extends AbstractRepositoryImpl<Product> imple
      */
     @Override
     public Stream<Product> findProductsByMatchingId(Long matchingId) {
-        return getRepository()
-                .filter(p -> p.getMatchingId() == matchingId);
+        return productsByMatchingId.get(matchingId).stream();
     }
 
     /**
      * {@inheritDoc}
      */
     @Override
-    protected Product toEntity(CsvRow row) {
-        return new Product(
-                row.get("id", Long::valueOf).get(),
-                row.get("price", Double::valueOf).get(),
-                row.get("currency").get(),
-                row.get("quantity", Integer::valueOf).get(),
-                row.get("matching_id", Long::valueOf).get()
-        );
+    protected Function<CsvRow, Product> bind(CsvSchema schema) {
+        return new ProductRowBinder().converter(schema);
     }
 }
@@ -0,0 +1,146 @@
+package com.example.repositories.csv;
+
+import com.example.exceptions.ParseException;
+import com.example.metrics.PipelineMetrics;
+import com.example.metrics.StageRecorder;
+import com.example.pojo.Product;
+import com.example.util.CsvRow;
+import com.example.util.CsvSchema;
+
+import java.util.Iterator;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Stream;
+
+/**
+ * Converter of product rows read straight from a CSV file, column indices are
+ * bound once per schema. Rows are converted in batches, each batch is recorded
+ * as the convert stage of the pipeline metrics.
+ *
+ * Not thread safe, every thread converting rows needs its own binder.
+ */
+public class ProductRowBinder {
+    private final StageRecorder recorder = StageRecorder.of(PipelineMetrics.Stage.CONVERT);
+    private CsvSchema schema;
+    private int id;
+    private int price;
+    private int currency;
+    private int quantity;
+    private int matchingId;
+
+    /**
+     * Converts rows to products and passes them to the action in the order
+     * of the rows. Conversion metrics are flushed once rows are exhausted.
+     *
+     * @param rows The rows with id, price, currency, quantity and matching_id cells
+     * @param action The receiver of the products
+     *
+     * @throws ParseException If some of the columns is missing
+     */
+    public void forEachProduct(Stream<CsvRow> rows, Consumer<Product> action) {
+        Iterator<CsvRow> iterator = rows.iterator();
+        CsvRow[] batch = new CsvRow[RowBatches.BATCH_ROWS];
+        Product[] products = new Product[batch.length];
+        int count;
+        while ((count = RowBatches.next(iterator, batch)) > 0) {
+            long begin = recorder != null ? recorder.begin() : 0;
+            for (int i = 0; i < count; i++) {
+                products[i] = toProduct(batch[i]);
+            }
+            if (recorder != null) {
+                recorder.end(begin, count, count);
+            }
+            for (int i = 0; i < count; i++) {
+                action.accept(products[i]);
+            }
+        }
+        flushMetrics();
+    }
+
+    /**
+     * Passes values of rows to the sink without creating products.
+     * Conversion metrics are flushed once rows are exhausted.
+     *
+     * @param rows The rows with id, price, currency, quantity and matching_id cells
+     * @param sink The receiver of the values
+     *
+     * @throws ParseException If some of the columns is missing
+     */
+    void appendAll(Stream<CsvRow> rows, ProductSink sink) {
+        Iterator<CsvRow> iterator = rows.iterator();
+        CsvRow[] batch = new CsvRow[RowBatches.BATCH_ROWS];
+        int count;
+        while ((count = RowBatches.next(iterator, batch)) > 0) {
+            long begin = recorder != null ? recorder.begin() : 0;
+            for (int i = 0; i < count; i++) {
+                append(batch[i], sink);
+            }
+            if (recorder != null) {
+                recorder.end(begin, count, count);
+            }
+        }
+        flushMetrics();
+    }
+
+    /**
+     * Binds given schema and returns converter of its rows to products, which
+     * records no metrics. The converter shares state of the binder.
+     *
+     * @param schema The schema with id, price, currency, quantity and matching_id columns
+     * @return The converter of rows to products
+     *
+     * @throws ParseException If some of the columns is missing
+     */
+    Function<CsvRow, Product> converter(CsvSchema schema) {
+        bind(schema);
+        return this::toProduct;
+    }
+
+    private Product toProduct(CsvRow row) {
+        bind(row.getSchema());
+        return new Product(
+                row.getLong(id),
+                row.getDouble(price),
+                row.get(currency),
+                row.getInt(quantity),
+                row.getLong(matchingId)
+        );
+    }
+
+    private void append(CsvRow row, ProductSink sink) {
+        bind(row.getSchema());
+        sink.add(
+                row.getLong(id),
+                row.getDouble(price),
+                row.get(currency),
+                row.getInt(quantity),
+                row.getLong(matchingId)
+        );
+    }
+
+    private void flushMetrics() {
+        if (recorder != null) {
+            recorder.flush();
+        }
+    }
+
+    private void bind(CsvSchema schema) {
+        if (schema == this.schema) {
+            return;
+        }
+        id = schema.requireIndex("id");
+        price = schema.requireIndex("price");
+        currency = schema.requireIndex("currency");
+        quantity = schema.requireIndex("quantity");
+        matchingId = schema.requireIndex("matching_id");
+        this.schema = schema;
+    }
+
+    /**
+     * Consumer of product values parsed from a row.
+     */
+    interface ProductSink {
+
+        void add(long id, double price, String currency, int quantity, long matchingId);
+    }
+}
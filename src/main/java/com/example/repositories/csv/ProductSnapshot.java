@@ -0,0 +1,287 @@
+package com.example.repositories.csv;
+
+import com.example.repositories.ColumnarProductRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.DoubleBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Binary columnar snapshot of products parsed from a CSV file.
+ *
+ * Snapshot is kept next to the source file and is valid only while size,
+ * modification time and CRC32 checksum of the source are the ones recorded in
+ * its header. Columns follow the header as big-endian arrays, so a valid
+ * snapshot is loaded through memory mappings of the columns without any parsing.
+ * Computing the checksum reads the source once, which is still much cheaper
+ * than parsing it.
+ *
+ * Content after the header is verified against its own CRC32 checksum and
+ * currency codes are checked against the number of currencies before any
+ * product is loaded, so a damaged snapshot is reparsed instead of loaded.
+ *
+ * Layout: magic, version, source size, source mtime, source checksum, number
+ * of rows, number of currencies, currencies as length-prefixed UTF-8 strings,
+ * then ids, prices, quantities, matching ids and currency codes columns and
+ * finally the checksum of everything after the header.
+ */
+class ProductSnapshot {
+    private static final Logger logger = LoggerFactory.getLogger(ProductSnapshot.class);
+
+    static final String SUFFIX = ".snapshot";
+
+    private static final long MAGIC = 0x435356534E415053L;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 8 + 4 + 8 + 8 + 8 + 4 + 4;
+    private static final int ROW_BYTES = 8 + 8 + 4 + 8 + 4;
+    private static final int TRAILER_BYTES = 8;
+    private static final int CHECKSUM_WINDOW_LENGTH = 64 * 1024 * 1024;
+    private static final int BATCH_ROWS = 1024 * 1024;
+
+    private final Path source;
+    private final Path snapshot;
+
+    private long sourceSize;
+    private long sourceModified;
+    private long sourceChecksum;
+    private boolean keyComputed;
+
+    ProductSnapshot(Path source) {
+        this.source = source;
+        this.snapshot = source.resolveSibling(source.getFileName() + SUFFIX);
+    }
+
+    /**
+     * Passes products of the snapshot to the sink if the snapshot is valid for
+     * the source. Nothing is passed otherwise.
+     *
+     * Key of the source is taken here even if there is no valid snapshot, so
+     * it is taken before the source is parsed and a snapshot written after
+     * parsing never records products of an older source under the key of a
+     * newer one.
+     *
+     * @param sink The receiver of currencies and rows
+     * @return {@code true} if the snapshot was valid and loaded
+     */
+    boolean read(Sink sink) {
+        try {
+            computeKey();
+        } catch (IOException ex) {
+            logger.warn("Can't read source '{}'", source, ex);
+            return false;
+        }
+        if (!Files.isRegularFile(snapshot)) {
+            return false;
+        }
+        try (FileChannel channel = FileChannel.open(snapshot, StandardOpenOption.READ)) {
+            ByteBuffer header = readFully(channel, 0, HEADER_BYTES);
+            if (header == null || header.getLong() != MAGIC || header.getInt() != VERSION) {
+                return false;
+            }
+            if (header.getLong() != sourceSize || header.getLong() != sourceModified
+                    || header.getLong() != sourceChecksum) {
+                return false;
+            }
+            int rows = header.getInt();
+            int currencies = header.getInt();
+            long position = HEADER_BYTES;
+            String[] names = new String[Math.max(0, currencies)];
+            for (int i = 0; i < names.length; i++) {
+                ByteBuffer length = readFully(channel, position, 2);
+                ByteBuffer name = length == null ? null : readFully(channel, position + 2, length.getShort() & 0xFFFF);
+                if (name == null) {
+                    return false;
+                }
+                names[i] = new String(name.array(), StandardCharsets.UTF_8);
+                position += 2 + name.capacity();
+            }
+            if (currencies < 0 || rows < 0
+                    || channel.size() - position != (long) rows * ROW_BYTES + TRAILER_BYTES) {
+                return false;
+            }
+            if (!isBodyIntact(channel) || !hasValidCurrencyCodes(channel, position, rows, currencies)) {
+                logger.warn("Snapshot '{}' is damaged, products will be parsed again", snapshot);
+                return false;
+            }
+
+            for (String name : names) {
+                sink.currency(name);
+            }
+            for (int from = 0; from < rows; from += BATCH_ROWS) {
+                int count = Math.min(BATCH_ROWS, rows - from);
+                LongBuffer ids = map(channel, position, 0, rows, from, count, 8).asLongBuffer();
+                DoubleBuffer prices = map(channel, position, 8, rows, from, count, 8).asDoubleBuffer();
+                IntBuffer quantities = map(channel, position, 16, rows, from, count, 4).asIntBuffer();
+                LongBuffer matchingIds = map(channel, position, 20, rows, from, count, 8).asLongBuffer();
+                IntBuffer currencyCodes = map(channel, position, 28, rows, from, count, 4).asIntBuffer();
+                for (int row = 0; row < count; row++) {
+                    sink.row(ids.get(row), prices.get(row), currencyCodes.get(row), quantities.get(row),
+                            matchingIds.get(row));
+                }
+            }
+            logger.debug("Loaded {} products from snapshot '{}'", rows, snapshot);
+            return true;
+        } catch (IOException ex) {
+            logger.warn("Can't read snapshot '{}'", snapshot, ex);
+            return false;
+        }
+    }
+
+    /**
+     * Writes snapshot of given products for the source under the key taken by
+     * {@link #read(Sink)}, which has to be called before the source is parsed.
+     * Failures are logged, since the snapshot is only an optimization.
+     *
+     * @param products The products loaded from the source
+     */
+    void write(ColumnarProductRepository products) {
+        Path temporary = snapshot.resolveSibling(snapshot.getFileName() + ".tmp");
+        try {
+            checkState(keyComputed, "Source key should be taken before the source is parsed");
+            int rows = products.size();
+            CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary), 1024 * 1024), new CRC32());
+            try (DataOutputStream output = new DataOutputStream(checked)) {
+                output.writeLong(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(sourceSize);
+                output.writeLong(sourceModified);
+                output.writeLong(sourceChecksum);
+                output.writeInt(rows);
+                output.writeInt(products.getCurrencyCount());
+                checked.getChecksum().reset();
+                for (int code = 0; code < products.getCurrencyCount(); code++) {
+                    byte[] name = products.getCurrency(code).getBytes(StandardCharsets.UTF_8);
+                    checkState(name.length <= 0xFFFF, "Currency name is too long for snapshot");
+                    output.writeShort(name.length);
+                    output.write(name);
+                }
+                for (int row = 0; row < rows; row++) {
+                    output.writeLong(products.getId(row));
+                }
+                for (int row = 0; row < rows; row++) {
+                    output.writeDouble(products.getPrice(row));
+                }
+                for (int row = 0; row < rows; row++) {
+                    output.writeInt(products.getQuantity(row));
+                }
+                for (int row = 0; row < rows; row++) {
+                    output.writeLong(products.getMatchingId(row));
+                }
+                for (int row = 0; row < rows; row++) {
+                    output.writeInt(products.getCurrencyCode(row));
+                }
+                output.writeLong(checked.getChecksum().getValue());
+            }
+            Files.move(temporary, snapshot, StandardCopyOption.REPLACE_EXISTING);
+            logger.debug("Written snapshot '{}'", snapshot);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Can't write snapshot '{}'", snapshot, ex);
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // nothing else can be done, the file is left behind
+            }
+        }
+    }
+
+    private void computeKey() throws IOException {
+        sourceModified = Files.getLastModifiedTime(source).toMillis();
+        CRC32 crc = new CRC32();
+        try (FileChannel channel = FileChannel.open(source, StandardOpenOption.READ)) {
+            long size = channel.size();
+            for (long offset = 0; offset < size; offset += CHECKSUM_WINDOW_LENGTH) {
+                crc.update(channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                        Math.min(CHECKSUM_WINDOW_LENGTH, size - offset)));
+            }
+            sourceSize = size;
+        }
+        sourceChecksum = crc.getValue();
+        keyComputed = true;
+    }
+
+    /**
+     * Returns whether checksum of the content between the header and the
+     * trailer matches the one stored in the trailer.
+     */
+    private static boolean isBodyIntact(FileChannel channel) throws IOException {
+        long end = channel.size() - TRAILER_BYTES;
+        CRC32 crc = new CRC32();
+        for (long offset = HEADER_BYTES; offset < end; offset += CHECKSUM_WINDOW_LENGTH) {
+            crc.update(channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                    Math.min(CHECKSUM_WINDOW_LENGTH, end - offset)));
+        }
+        ByteBuffer trailer = readFully(channel, end, TRAILER_BYTES);
+        return trailer != null && trailer.getLong() == crc.getValue();
+    }
+
+    /**
+     * Returns whether every currency code refers to one of the currencies.
+     */
+    private static boolean hasValidCurrencyCodes(FileChannel channel, long data, int rows, int currencies)
+            throws IOException {
+        for (int from = 0; from < rows; from += BATCH_ROWS) {
+            int count = Math.min(BATCH_ROWS, rows - from);
+            IntBuffer codes = map(channel, data, 28, rows, from, count, 4).asIntBuffer();
+            for (int row = 0; row < count; row++) {
+                int code = codes.get(row);
+                if (code < 0 || code >= currencies) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Maps values of given rows of the column. Columns start at {@code data} and
+     * the column with given offset per row starts at {@code columnOffset * rows}.
+     */
+    private static ByteBuffer map(FileChannel channel, long data, int columnOffset, int rows,
+                                  int from, int count, int width) throws IOException {
+        long offset = data + (long) columnOffset * rows + (long) from * width;
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) count * width);
+    }
+
+    /**
+     * Reads given number of bytes at given position or returns {@code null} if
+     * the file ends before.
+     */
+    private static ByteBuffer readFully(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                return null;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Receiver of snapshot content. Currencies come first in the order of
+     * their codes, then rows in the load order.
+     */
+    interface Sink {
+
+        void currency(String name);
+
+        void row(long id, double price, int currencyCode, int quantity, long matchingId);
+    }
+}
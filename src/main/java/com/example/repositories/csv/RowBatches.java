@@ -0,0 +1,32 @@
+package com.example.repositories.csv;
+
+import com.example.util.CsvRow;
+
+import java.util.Iterator;
+
+/**
+ * Puller of rows in batches, so that conversion of rows can be measured once
+ * per batch rather than once per row.
+ */
+final class RowBatches {
+
+    static final int BATCH_ROWS = 1024;
+
+    private RowBatches() {
+    }
+
+    /**
+     * Fills the batch with the next rows.
+     *
+     * @param rows The iterator of rows
+     * @param batch The array receiving the rows
+     * @return Number of rows put into the batch, {@code 0} once rows are exhausted
+     */
+    static int next(Iterator<CsvRow> rows, CsvRow[] batch) {
+        int count = 0;
+        while (count < batch.length && rows.hasNext()) {
+            batch[count++] = rows.next();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,402 @@
+package com.example.services;
+
+import com.example.exceptions.ProcessingException;
+import com.example.pojo.AggregationResult;
+import com.example.pojo.Matching;
+import com.example.pojo.Product;
+import com.example.repositories.ColumnarProductRepository;
+import com.example.repositories.CurrencyRepository;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Group-by aggregation engine that reads the product stream exactly once.
+ *
+ * Per-matching state (products count and bounded set of the highest priced
+ * candidates) is built while products are accepted. Results are produced
+ * afterwards in the order matchings were given to the engine.
+ *
+ * Products of a {@link ColumnarProductRepository} are aggregated straight from
+ * its columns, selected rows are turned into products only for the results.
+ * If the repository is normalized with the same currency repository, its
+ * precomputed prices are read instead of converting prices again.
+ *
+ * If a pool is given, states of different matchings are built and sorted on
+ * the pool in parallel. Ties are resolved by row index, so results don't depend
+ * on the schedule of the tasks.
+ */
+class AggregationEngine {
+
+    private final List<Matching> matchings;
+    private final Map<Long, MatchingState> states = new LinkedHashMap<>();
+    private final CurrencyRepository currencyRepository;
+    private final ForkJoinPool pool;
+
+    private ColumnarProductRepository columns;
+    private String[] usedCurrencies = new String[0];
+    private boolean normalized;
+    private long sequence;
+    private boolean sorted;
+
+    AggregationEngine(Stream<Matching> matchings, CurrencyRepository currencyRepository) {
+        this(matchings, currencyRepository, null);
+    }
+
+    /**
+     * Creates engine running per-matching work on given pool, or on the calling
+     * thread if the pool is {@code null}.
+     */
+    AggregationEngine(Stream<Matching> matchings, CurrencyRepository currencyRepository, ForkJoinPool pool) {
+        this.currencyRepository = currencyRepository;
+        this.pool = pool;
+        this.matchings = new ArrayList<>();
+        matchings.forEach(this.matchings::add);
+        for (Matching matching : this.matchings) {
+            states.merge(matching.getMatchingId(),
+                    new MatchingState(matching.getMatchingId(), matching.getTopPricedCount()),
+                    (existing, added) -> existing.limit >= added.limit ? existing : added);
+        }
+    }
+
+    /**
+     * Adds product to the state of its matching. Products without known
+     * matching are skipped.
+     *
+     * @param product The product to aggregate
+     * @return {@code true} if the product belongs to a known matching
+     *
+     * @throws ProcessingException
+     *         If currency of the product is unknown
+     */
+    boolean accept(Product product) {
+        long order = sequence++;
+        MatchingState state = states.get(product.getMatchingId());
+        if (state == null) {
+            return false;
+        }
+        double totalPrice = getTotalPrice(product);
+        double ratio = getRatioForCurrency(product.getCurrency());
+        state.top.offer(totalPrice * ratio, order, product);
+        sorted = false;
+        return true;
+    }
+
+    /**
+     * Adds all products of the columnar repository to the states of their matchings.
+     * Only rows of known matchings are visited, rows are referenced by index.
+     *
+     * @param products The columnar repository to aggregate
+     *
+     * @throws ProcessingException
+     *         If currency of some product with known matching is unknown
+     */
+    void acceptAll(ColumnarProductRepository products) {
+        columns = products;
+        normalized = products.isNormalizedFor(currencyRepository);
+        sorted = false;
+        double[] codeRatios = new double[products.getCurrencyCount()];
+        boolean[] knownCodes = new boolean[codeRatios.length];
+        for (int code = 0; code < codeRatios.length; code++) {
+            int currencyCode = currencyRepository.getCurrencyCode(products.getCurrency(code));
+            if (currencyCode >= 0) {
+                codeRatios[code] = currencyRepository.getRatio(currencyCode);
+                knownCodes[code] = true;
+            }
+        }
+
+        forEachState(state -> products.forEachRow(state.matchingId, row -> {
+            int code = products.getCurrencyCode(row);
+            if (!knownCodes[code]) {
+                throw new ProcessingException(String.format("Can't find currency '%s'", products.getCurrency(code)));
+            }
+            if (normalized) {
+                state.top.offer(products.getConvertedTotalPrice(row), row, null);
+                return;
+            }
+            double totalPrice = products.getQuantity(row) * products.getPrice(row);
+            state.top.offer(totalPrice * codeRatios[code], row, null);
+        }));
+    }
+
+    /**
+     * Returns number of products accepted so far, including products of
+     * unknown matchings.
+     */
+    long acceptedCount() {
+        return columns != null ? columns.size() : sequence;
+    }
+
+    /**
+     * Returns aggregation results for all accepted products ordered by matchings
+     * and by descending converted total price inside each matching.
+     */
+    Stream<AggregationResult> results() {
+        sort();
+        return matchings.stream()
+                .flatMap(this::results);
+    }
+
+    /**
+     * Returns aggregation results of given matching ordered by descending
+     * converted total price.
+     *
+     * @param matching The matching given to the engine
+     */
+    Stream<AggregationResult> results(Matching matching) {
+        sort();
+        return resultsForMatching(matching, states.get(matching.getMatchingId()).top);
+    }
+
+    private Stream<AggregationResult> resultsForMatching(Matching matching, TopKSelector<Product> top) {
+        int limit = (int) Math.min(matching.getTopPricedCount(), top.size());
+        long ignoredCount = Math.max(0, top.offered() - matching.getTopPricedCount());
+        double priceAverage = totalPriceAverage(top, limit);
+
+        return IntStream.range(0, limit)
+                .mapToObj(i -> {
+                    Product product = product(top, i);
+                    return new AggregationResult(
+                            matching.getMatchingId(),
+                            normalized ? columns.getTotalPrice((int) top.ref(i)) : getTotalPrice(product),
+                            priceAverage / getRatioForCurrency(product.getCurrency()),
+                            product.getCurrency(),
+                            ignoredCount);
+                });
+    }
+
+    private double totalPriceAverage(TopKSelector<Product> top, int limit) {
+        double[] unitPrices = new double[limit];
+        for (int i = 0; i < limit; i++) {
+            unitPrices[i] = normalized
+                    ? columns.getConvertedUnitPrice((int) top.ref(i))
+                    : top.key(i) / quantity(top, i);
+        }
+        return Arrays.stream(unitPrices).average().orElse(0);
+    }
+
+    /**
+     * Writes matchings, used currency ratios and sorted state of every matching,
+     * so that aggregation can be continued by {@link #readState(DataInput)}.
+     *
+     * @param output The output of the state
+     */
+    void writeState(DataOutput output) throws IOException {
+        sort();
+        output.writeInt(matchings.size());
+        for (Matching matching : matchings) {
+            output.writeLong(matching.getMatchingId());
+            output.writeLong(matching.getTopPricedCount());
+        }
+        output.writeInt((int) Arrays.stream(usedCurrencies).filter(Objects::nonNull).count());
+        for (int code = 0; code < usedCurrencies.length; code++) {
+            if (usedCurrencies[code] != null) {
+                output.writeUTF(usedCurrencies[code]);
+                output.writeDouble(currencyRepository.getRatio(code));
+            }
+        }
+        output.writeLong(sequence);
+        output.writeInt(states.size());
+        for (MatchingState state : states.values()) {
+            TopKSelector<Product> top = state.top;
+            output.writeLong(state.matchingId);
+            output.writeLong(top.offered());
+            output.writeInt(top.size());
+            for (int i = 0; i < top.size(); i++) {
+                Product product = product(top, i);
+                output.writeDouble(top.key(i));
+                output.writeLong(top.ref(i));
+                output.writeLong(product.getId());
+                output.writeDouble(product.getPrice());
+                output.writeUTF(product.getCurrency());
+                output.writeInt(product.getQuantity());
+            }
+        }
+    }
+
+    /**
+     * Restores state written by {@link #writeState(DataOutput)} into the engine
+     * that didn't accept any products yet. State is restored only if it was
+     * written for the same matchings and currency ratios of the repository.
+     *
+     * @param input The input of the state
+     * @return {@code true} if the state was restored
+     *
+     * @throws IllegalStateException If the state is malformed
+     */
+    boolean readState(DataInput input) throws IOException {
+        checkState(sequence == 0 && columns == null, "Engine should not have accepted products");
+        int matchingCount = input.readInt();
+        if (matchingCount != matchings.size()) {
+            return false;
+        }
+        for (Matching matching : matchings) {
+            if (input.readLong() != matching.getMatchingId() || input.readLong() != matching.getTopPricedCount()) {
+                return false;
+            }
+        }
+        List<String> savedCurrencies = new ArrayList<>();
+        int ratioCount = input.readInt();
+        for (int i = 0; i < ratioCount; i++) {
+            String currency = input.readUTF();
+            double ratio = input.readDouble();
+            int code = currencyRepository.getCurrencyCode(currency);
+            if (code < 0 || Double.compare(currencyRepository.getRatio(code), ratio) != 0) {
+                return false;
+            }
+            savedCurrencies.add(currency);
+        }
+
+        savedCurrencies.forEach(this::getRatioForCurrency);
+        sequence = input.readLong();
+        int stateCount = input.readInt();
+        checkState(stateCount == states.size(), "Saved state should have all matchings");
+        for (int i = 0; i < stateCount; i++) {
+            MatchingState state = states.get(input.readLong());
+            checkState(state != null, "Saved state should have known matchings only");
+            long offered = input.readLong();
+            int size = input.readInt();
+            double[] keys = new double[size];
+            long[] refs = new long[size];
+            List<Product> products = new ArrayList<>(size);
+            for (int j = 0; j < size; j++) {
+                keys[j] = input.readDouble();
+                refs[j] = input.readLong();
+                long id = input.readLong();
+                double price = input.readDouble();
+                String currency = input.readUTF();
+                int quantity = input.readInt();
+                products.add(new Product(id, price, currency, quantity, state.matchingId));
+            }
+            state.top.restore(offered, keys, refs, products);
+        }
+        return true;
+    }
+
+    private void sort() {
+        if (!sorted) {
+            forEachState(state -> state.top.sortDescending());
+            sorted = true;
+        }
+    }
+
+    /**
+     * Applies the action to every matching state, in parallel if the engine has
+     * a pool. Once an action fails no further states are started, the recorded
+     * failure is rethrown on the calling thread as is.
+     */
+    private void forEachState(Consumer<MatchingState> action) {
+        if (pool == null) {
+            states.values().forEach(action);
+            return;
+        }
+        List<MatchingState> tasks = new ArrayList<>(states.values());
+        AtomicReference<RuntimeException> failure = new AtomicReference<>();
+        pool.invoke(new StateAction(tasks, 0, tasks.size(), action, failure));
+        if (failure.get() != null) {
+            throw failure.get();
+        }
+    }
+
+    private Product product(TopKSelector<Product> top, int index) {
+        return columns != null ? columns.getProduct((int) top.ref(index)) : top.payload(index);
+    }
+
+    private int quantity(TopKSelector<Product> top, int index) {
+        return columns != null ? columns.getQuantity((int) top.ref(index)) : top.payload(index).getQuantity();
+    }
+
+    private double getTotalPrice(Product product) {
+        return product.getQuantity() * product.getPrice();
+    }
+
+    /**
+     * Returns ratio of the currency and remembers the currency as used, so its
+     * ratio is saved with the state.
+     */
+    private double getRatioForCurrency(String currency) {
+        int code = currencyRepository.getCurrencyCode(currency);
+        if (code < 0) {
+            throw new ProcessingException(String.format("Can't find currency '%s'", currency));
+        }
+        if (code >= usedCurrencies.length) {
+            usedCurrencies = Arrays.copyOf(usedCurrencies, Math.max(code + 1, 2 * usedCurrencies.length));
+        }
+        if (usedCurrencies[code] == null) {
+            usedCurrencies[code] = currency;
+        }
+        return currencyRepository.getRatio(code);
+    }
+
+    /**
+     * Task applying the action to a range of matching states, ranges are split
+     * in halves until a single state is left. Checks for a recorded failure
+     * before every state, so states are skipped once an action failed.
+     */
+    private static class StateAction extends RecursiveAction {
+        private final List<MatchingState> states;
+        private final int from;
+        private final int to;
+        private final Consumer<MatchingState> action;
+        private final AtomicReference<RuntimeException> failure;
+
+        StateAction(List<MatchingState> states, int from, int to, Consumer<MatchingState> action,
+                    AtomicReference<RuntimeException> failure) {
+            this.states = states;
+            this.from = from;
+            this.to = to;
+            this.action = action;
+            this.failure = failure;
+        }
+
+        @Override
+        protected void compute() {
+            if (failure.get() != null) {
+                return;
+            }
+            if (to - from > 1) {
+                int middle = (from + to) >>> 1;
+                invokeAll(new StateAction(states, from, middle, action, failure),
+                        new StateAction(states, middle, to, action, failure));
+                return;
+            }
+            if (from < to) {
+                try {
+                    action.accept(states.get(from));
+                } catch (RuntimeException ex) {
+                    failure.compareAndSet(null, ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Mutable aggregation state of a single matching.
+     */
+    private static class MatchingState {
+        final long matchingId;
+        final long limit;
+        final TopKSelector<Product> top;
+
+        MatchingState(long matchingId, long limit) {
+            this.matchingId = matchingId;
+            this.limit = limit;
+            this.top = new TopKSelector<>(limit);
+        }
+    }
+}
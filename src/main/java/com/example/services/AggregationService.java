@@ -1,172 +1,96 @@
 package com.example.services;
 
+import com.example.metrics.PipelineMetrics;
+import com.example.metrics.StageRecorder;
+import com.example.repositories.ColumnarProductRepository;
 import com.example.repositories.CurrencyRepository;
 import com.example.repositories.MatchingRepository;
 import com.example.repositories.ProductRepository;
-import com.example.exceptions.ProcessingException;
 import com.example.pojo.AggregationResult;
-import com.example.pojo.Matching;
 import com.example.pojo.Product;
-import lombok.Value;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-import java.util.Collection;
-import java.util.Comparator;
-import java.util.List;
-import java.util.function.Function;
-import java.util.stream.Collectors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.stream.Stream;
 
+import static com.google.common.base.Preconditions.checkState;
+
 /**
  * Service handling all aggregation logic.
  */
 public class AggregationService {
     private static final Logger logger = LoggerFactory.getLogger(AggregationService.class);
 
-    private static final Comparator<IntermediateResult> DESCENDING_ORDER_PRICE_COMPARATOR =
-            Comparator.comparingDouble(IntermediateResult::getTotalPriceConverted)
-                .reversed();
-
     private final ProductRepository productRepository;
     private final MatchingRepository matchingRepository;
     private final CurrencyRepository currencyRepository;
+    private final int parallelism;
 
     public AggregationService(
             ProductRepository productRepository,
             MatchingRepository matchingRepository,
             CurrencyRepository currencyRepository) {
 
+        this(productRepository, matchingRepository, currencyRepository, 1);
+    }
+
+    /**
+     * Creates service that aggregates matchings on a pool of given parallelism.
+     *
+     * Parallelism of {@code 1} runs aggregation on the calling thread. Otherwise
+     * matchings of a columnar product repository are aggregated in parallel and
+     * selections of all matchings are sorted in parallel. Results are the same
+     * and in the same order for any parallelism.
+     *
+     * @param parallelism The number of worker threads
+     */
+    public AggregationService(
+            ProductRepository productRepository,
+            MatchingRepository matchingRepository,
+            CurrencyRepository currencyRepository,
+            int parallelism) {
+
+        checkState(parallelism > 0, "Parallelism should be greater than zero");
         this.productRepository = productRepository;
         this.matchingRepository = matchingRepository;
         this.currencyRepository = currencyRepository;
+        this.parallelism = parallelism;
     }
 
     /**
      * Returns aggregated data for the values provided in the repositories.
+     *
+     * Products are read exactly once; results are ordered by matchings and by
+     * descending converted total price inside each matching. Columnar product
+     * repository is aggregated from its columns without materializing products.
      */
     public Stream<AggregationResult> aggregateProducts() {
         logger.debug("Started processing of given data");
+        StageRecorder recorder = StageRecorder.of(PipelineMetrics.Stage.AGGREGATE);
+        long begin = recorder != null ? recorder.begin() : 0;
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
         try {
-            return matchingRepository.findAll()
-                    .map(this::resultsForMatchingProducts)
-                    .flatMap(Function.identity())
-                    .map(this::toAggregation);
+            AggregationEngine engine = new AggregationEngine(matchingRepository.findAll(), currencyRepository, pool);
+            if (productRepository instanceof ColumnarProductRepository) {
+                engine.acceptAll((ColumnarProductRepository) productRepository);
+            } else {
+                try (Stream<Product> products = productRepository.findAll()) {
+                    products.forEach(engine::accept);
+                }
+            }
+            Stream<AggregationResult> results = engine.results();
+            if (recorder != null) {
+                recorder.end(begin, engine.acceptedCount(), 0);
+                recorder.flush();
+            }
+            return PipelineMetrics.INSTANCE.countRowsOut(PipelineMetrics.Stage.AGGREGATE, results);
         } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
             logger.debug("Data processing completed");
         }
     }
 
-    private AggregationResult toAggregation(IntermediateResult intermediateResult) {
-        return new AggregationResult(
-                intermediateResult.getMatchingId(),
-                intermediateResult.getTotalPrice(),
-                intermediateResult.getAvgPrice(),
-                intermediateResult.getCurrency(),
-                intermediateResult.getIgnoredProductsCount()
-        );
-    }
-
-    private Stream<IntermediateResult> resultsForMatchingProducts(Matching matching) {
-        List<IntermediateResult> resultsForMatching = productRepository.findAll()
-                .filter(p ->
-                        matching.getMatchingId() == p.getMatchingId()
-                )
-                .map(product -> getProductStatsByMatching(matching, product))
-                .sorted(DESCENDING_ORDER_PRICE_COMPARATOR)
-                .limit(matching.getTopPricedCount())
-                .collect(Collectors.toList());
-
-        double priceAverage = totalPriceAverage(resultsForMatching);
-
-        return addAverageToResults(resultsForMatching.stream(), priceAverage);
-    }
-
-    private IntermediateResult getProductStatsByMatching(Matching matching, Product product) {
-        double totalPrice = getTotalPrice(product);
-        double currencyRatio = getRatioForCurrency(currencyRepository, product.getCurrency());
-        double totalPriceWithRatio = applyRatio(totalPrice, currencyRatio);
-        long totalProductsByMatching = totalProductsCountByMatching(productRepository, matching);
-        long ignoredCount = getIgnoredCount(totalProductsByMatching, matching.getTopPricedCount());
-
-        return new IntermediateResult(
-                matching.getMatchingId(),
-                product.getQuantity(),
-                totalPrice,
-                0,
-                currencyRatio,
-                totalPriceWithRatio,
-                product.getCurrency(),
-                ignoredCount
-        );
-    }
-
-    private double totalPriceAverage(Collection<IntermediateResult> intermediateResults) {
-        return intermediateResults.stream()
-                .mapToDouble(r ->
-                        r.getTotalPriceConverted() / r.getQuantity()
-                )
-                .average()
-                .orElse(0);
-    }
-
-    private Stream<IntermediateResult> addAverageToResults(Stream<IntermediateResult> results, double priceAverage) {
-        return results.map(r -> new IntermediateResult(
-                r.getMatchingId(),
-                r.getQuantity(),
-                r.getTotalPrice(),
-                getAveragePriceWithRatio(priceAverage, r.getCurrencyRatio()),
-                r.getCurrencyRatio(),
-                r.getTotalPriceConverted(),
-                r.getCurrency(),
-                r.getIgnoredProductsCount())
-        );
-    }
-
-    private double getAveragePriceWithRatio(double priceAverage, double ratio) {
-        return priceAverage / ratio;
-    }
-
-    private double getTotalPrice(Product product) {
-        return product.getQuantity() * product.getPrice();
-    }
-
-    private double getRatioForCurrency(CurrencyRepository currencyRepository, String currency) {
-        return currencyRepository.getRatioForCurrency(currency)
-                .orElseThrow(
-                        () -> new ProcessingException(String.format("Can't find currency '%s'", currency)));
-    }
-
-    private double applyRatio(double amount, double ratio) {
-        return amount * ratio;
-    }
-
-    private long totalProductsCountByMatching(ProductRepository productRepository, Matching matching) {
-        return productRepository.findProductsByMatchingId(matching.getMatchingId())
-                .count();
-    }
-
-    private long getIgnoredCount(long total, long limit) {
-        if (limit > total) {
-            return 0;
-        }
-        return total - limit;
-    }
-
-    /**
-     * POJO representing intermediate calculation result.
-     * Created because of limitation of Java not having tuples.
-     */
-    @Value
-    private static class IntermediateResult {
-        long matchingId;
-        int quantity;
-        double totalPrice;
-        double avgPrice;
-        double currencyRatio;
-        double totalPriceConverted;
-        String currency;
-        long ignoredProductsCount;
-    }
-
 }
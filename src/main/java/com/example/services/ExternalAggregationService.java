@@ -0,0 +1,311 @@
+package com.example.services;
+
+import com.example.exceptions.FileWriteException;
+import com.example.exceptions.ParseException;
+import com.example.metrics.PipelineMetrics;
+import com.example.metrics.StageRecorder;
+import com.example.pojo.AggregationResult;
+import com.example.pojo.Matching;
+import com.example.pojo.Product;
+import com.example.repositories.CurrencyRepository;
+import com.example.repositories.MatchingRepository;
+import com.example.repositories.csv.ProductRowBinder;
+import com.example.util.CsvFileReader;
+import com.example.util.CsvRow;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Service handling aggregation of products that don't fit into memory.
+ *
+ * Products are read from the CSV file as a stream and hash-partitioned by
+ * matching id into temporary partition files, products of unknown matchings
+ * are dropped right away. Partitions are then aggregated one by one, so only
+ * the state of a single partition is kept in memory. The number of partitions
+ * is chosen so that a partition is about the size of the memory budget.
+ *
+ * Results are the same as the ones of {@link AggregationService} and come in
+ * the order of matchings. They are kept in memory until all partitions are
+ * aggregated, so memory is bounded by the budget plus the size of the output.
+ */
+public class ExternalAggregationService {
+    private static final Logger logger = LoggerFactory.getLogger(ExternalAggregationService.class);
+
+    private static final int MAX_PARTITIONS = 1024;
+    private static final int MAX_BUFFER_SIZE = 64 * 1024;
+    private static final int MIN_BUFFER_SIZE = 512;
+
+    private final String productsFile;
+    private final MatchingRepository matchingRepository;
+    private final CurrencyRepository currencyRepository;
+    private final long memoryBudget;
+    private final Path tempDirectory;
+
+    /**
+     * Creates service keeping partition files in the default temporary directory.
+     *
+     * @param productsFile The name of the products CSV file
+     * @param memoryBudget The number of bytes of products aggregated at once
+     */
+    public ExternalAggregationService(
+            String productsFile,
+            MatchingRepository matchingRepository,
+            CurrencyRepository currencyRepository,
+            long memoryBudget) {
+
+        this(productsFile, matchingRepository, currencyRepository, memoryBudget,
+                Paths.get(System.getProperty("java.io.tmpdir")));
+    }
+
+    /**
+     * Creates service keeping partition files in given directory.
+     *
+     * @param productsFile The name of the products CSV file
+     * @param memoryBudget The number of bytes of products aggregated at once
+     * @param tempDirectory The directory for partition files
+     */
+    public ExternalAggregationService(
+            String productsFile,
+            MatchingRepository matchingRepository,
+            CurrencyRepository currencyRepository,
+            long memoryBudget,
+            Path tempDirectory) {
+
+        checkState(StringUtils.isNotEmpty(productsFile), "CSV file name should be present");
+        checkState(memoryBudget > 0, "Memory budget should be greater than zero");
+        this.productsFile = productsFile;
+        this.matchingRepository = matchingRepository;
+        this.currencyRepository = currencyRepository;
+        this.memoryBudget = memoryBudget;
+        this.tempDirectory = tempDirectory;
+    }
+
+    /**
+     * Returns aggregated data for the products file and the values provided
+     * in the repositories.
+     *
+     * @throws ParseException If products file can't be read
+     * @throws FileWriteException If partition files can't be written
+     */
+    public Stream<AggregationResult> aggregateProducts() {
+        logger.debug("Started external processing of given data");
+        StageRecorder recorder = StageRecorder.of(PipelineMetrics.Stage.AGGREGATE);
+        long begin = recorder != null ? recorder.begin() : 0;
+        List<Matching> matchings = matchingRepository.findAll().collect(Collectors.toList());
+        Map<Long, Integer> partitionsByMatchingId = new HashMap<>();
+        int partitionCount = partitionCount();
+        for (Matching matching : matchings) {
+            partitionsByMatchingId.put(matching.getMatchingId(), partition(matching.getMatchingId(), partitionCount));
+        }
+
+        Path directory = createDirectory();
+        try {
+            Partitions partitions = new Partitions(directory, partitionCount);
+            partitions.write(partitionsByMatchingId);
+
+            List<List<AggregationResult>> results = new ArrayList<>(matchings.size());
+            for (int i = 0; i < matchings.size(); i++) {
+                results.add(null);
+            }
+            for (int partition = 0; partition < partitionCount; partition++) {
+                aggregatePartition(partitions, partition, matchings, partitionsByMatchingId, results);
+            }
+            if (recorder != null) {
+                recorder.end(begin, partitions.written, 0);
+                recorder.flush();
+            }
+            return PipelineMetrics.INSTANCE.countRowsOut(PipelineMetrics.Stage.AGGREGATE,
+                    results.stream().flatMap(List::stream));
+        } finally {
+            delete(directory);
+            logger.debug("External data processing completed");
+        }
+    }
+
+    private void aggregatePartition(Partitions partitions, int partition, List<Matching> matchings,
+                                    Map<Long, Integer> partitionsByMatchingId,
+                                    List<List<AggregationResult>> results) {
+        List<Integer> indices = new ArrayList<>();
+        for (int i = 0; i < matchings.size(); i++) {
+            if (partitionsByMatchingId.get(matchings.get(i).getMatchingId()) == partition) {
+                indices.add(i);
+            }
+        }
+        if (indices.isEmpty()) {
+            return;
+        }
+
+        AggregationEngine engine = new AggregationEngine(indices.stream().map(matchings::get), currencyRepository);
+        partitions.read(partition, engine::accept);
+        for (int index : indices) {
+            results.set(index, engine.results(matchings.get(index)).collect(Collectors.toList()));
+        }
+    }
+
+    private int partitionCount() {
+        long size = productsFileSize();
+        return (int) Math.max(1, Math.min(MAX_PARTITIONS, (size + memoryBudget - 1) / memoryBudget));
+    }
+
+    private long productsFileSize() {
+        try {
+            long size = 0;
+            for (Path shard : CsvFileReader.INSTANCE.resolveShards(productsFile)) {
+                size += Files.size(shard);
+            }
+            return size;
+        } catch (Exception ex) {
+            throw new ParseException(ex);
+        }
+    }
+
+    private static int partition(long matchingId, int partitionCount) {
+        long hash = matchingId * 0x9E3779B97F4A7C15L;
+        return (int) ((hash >>> 32) % partitionCount);
+    }
+
+    private Path createDirectory() {
+        try {
+            return Files.createTempDirectory(tempDirectory, "aggregation");
+        } catch (IOException ex) {
+            throw new FileWriteException(ex);
+        }
+    }
+
+    private static void delete(Path directory) {
+        try (Stream<Path> files = Files.list(directory)) {
+            for (Path file : files.collect(Collectors.toList())) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(directory);
+        } catch (IOException ex) {
+            logger.warn("Can't delete temporary directory {}", directory, ex);
+        }
+    }
+
+    /**
+     * Partition files of products with known matchings.
+     *
+     * A product is written as a fixed-width binary record, its currency is
+     * replaced with a code of the in-memory dictionary.
+     */
+    private class Partitions {
+        private final Path directory;
+        private final int count;
+        private final List<String> currencies = new ArrayList<>();
+        private long written;
+
+        Partitions(Path directory, int count) {
+            this.directory = directory;
+            this.count = count;
+        }
+
+        void write(Map<Long, Integer> partitionsByMatchingId) {
+            int bufferSize = (int) Math.max(MIN_BUFFER_SIZE, Math.min(MAX_BUFFER_SIZE, memoryBudget / count / 2));
+            DataOutputStream[] outputs = new DataOutputStream[count];
+            Map<String, Integer> codes = new HashMap<>();
+            try (Stream<CsvRow> rows = CsvFileReader.INSTANCE.readFile(productsFile)) {
+                new ProductRowBinder().forEachProduct(rows, product -> {
+                    Integer partition = partitionsByMatchingId.get(product.getMatchingId());
+                    if (partition == null) {
+                        return;
+                    }
+                    Integer code = codes.get(product.getCurrency());
+                    if (code == null) {
+                        code = currencies.size();
+                        codes.put(product.getCurrency(), code);
+                        currencies.add(product.getCurrency());
+                    }
+                    try {
+                        if (outputs[partition] == null) {
+                            outputs[partition] = new DataOutputStream(new BufferedOutputStream(
+                                    Files.newOutputStream(file(partition)), bufferSize));
+                        }
+                        DataOutputStream output = outputs[partition];
+                        output.writeLong(product.getId());
+                        output.writeDouble(product.getPrice());
+                        output.writeLong(product.getMatchingId());
+                        output.writeInt(product.getQuantity());
+                        output.writeInt(code);
+                        written++;
+                    } catch (IOException ex) {
+                        throw new FileWriteException(ex);
+                    }
+                });
+            } finally {
+                close(outputs);
+            }
+        }
+
+        void read(int partition, Consumer<Product> consumer) {
+            Path file = file(partition);
+            if (!Files.exists(file)) {
+                return;
+            }
+            try (DataInputStream input = new DataInputStream(new BufferedInputStream(
+                    Files.newInputStream(file), MAX_BUFFER_SIZE))) {
+                while (true) {
+                    long id;
+                    try {
+                        id = input.readLong();
+                    } catch (EOFException ex) {
+                        break;
+                    }
+                    double price = input.readDouble();
+                    long matchingId = input.readLong();
+                    int quantity = input.readInt();
+                    String currency = currencies.get(input.readInt());
+                    consumer.accept(new Product(id, price, currency, quantity, matchingId));
+                }
+            } catch (IOException ex) {
+                throw new ParseException(ex);
+            }
+            try {
+                Files.delete(file);
+            } catch (IOException ex) {
+                logger.warn("Can't delete partition file {}", file, ex);
+            }
+        }
+
+        private Path file(int partition) {
+            return directory.resolve("partition-" + partition + ".bin");
+        }
+
+        private void close(DataOutputStream[] outputs) {
+            FileWriteException failure = null;
+            for (DataOutputStream output : outputs) {
+                if (output == null) {
+                    continue;
+                }
+                try {
+                    output.close();
+                } catch (IOException ex) {
+                    failure = new FileWriteException(ex);
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+    }
+}
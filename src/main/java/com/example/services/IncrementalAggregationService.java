@@ -0,0 +1,233 @@
+package com.example.services;
+
+import com.example.exceptions.ParseException;
+import com.example.metrics.PipelineMetrics;
+import com.example.metrics.StageRecorder;
+import com.example.pojo.AggregationResult;
+import com.example.repositories.CurrencyRepository;
+import com.example.repositories.MatchingRepository;
+import com.example.repositories.csv.ProductRowBinder;
+import com.example.util.AppendedCsvReader;
+import com.example.util.CsvFileReader;
+import com.example.util.CsvRow;
+import com.example.util.CsvSchema;
+import com.example.util.GzipFileSource;
+import org.apache.commons.lang3.StringUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Service handling aggregation of a products file that only grows by appended
+ * products.
+ *
+ * After each run the offset of the last processed record and the aggregation
+ * state of every matching are saved to a state file next to the products file.
+ * The next run restores the state, parses only the records appended after the
+ * offset and updates only the matchings they belong to, so its cost depends on
+ * the size of the change. The state is dropped and products are aggregated
+ * from the start if matchings or currency ratios change, or if the products
+ * file no longer ends the processed part with the same bytes.
+ *
+ * A trailing record without a line break is left for the next run, since it
+ * may still be being written.
+ */
+public class IncrementalAggregationService {
+    private static final Logger logger = LoggerFactory.getLogger(IncrementalAggregationService.class);
+
+    static final String STATE_SUFFIX = ".state";
+
+    private static final long MAGIC = 0x4353564147475354L;
+    private static final int VERSION = 1;
+    private static final int GUARD_LENGTH = 4096;
+
+    private final String productsFile;
+    private final MatchingRepository matchingRepository;
+    private final CurrencyRepository currencyRepository;
+
+    public IncrementalAggregationService(
+            String productsFile,
+            MatchingRepository matchingRepository,
+            CurrencyRepository currencyRepository) {
+
+        checkState(StringUtils.isNotEmpty(productsFile), "CSV file name should be present");
+        this.productsFile = productsFile;
+        this.matchingRepository = matchingRepository;
+        this.currencyRepository = currencyRepository;
+    }
+
+    /**
+     * Returns aggregated data for all products of the file, aggregating only
+     * products appended since the previous call.
+     *
+     * @throws ParseException If products file can't be read
+     * @throws IllegalStateException If products file is gzip compressed
+     */
+    public Stream<AggregationResult> aggregateProducts() {
+        logger.debug("Started incremental processing of given data");
+        StageRecorder recorder = StageRecorder.of(PipelineMetrics.Stage.AGGREGATE);
+        long begin = recorder != null ? recorder.begin() : 0;
+        Path products = CsvFileReader.INSTANCE.resolve(productsFile);
+        checkState(!GzipFileSource.isGzip(products), "Compressed products can't be aggregated incrementally");
+        Path stateFile = products.resolveSibling(products.getFileName() + STATE_SUFFIX);
+
+        State state = readState(products, stateFile);
+        if (state == null) {
+            state = new State(newEngine(), 0, null);
+        }
+        long restored = state.engine.acceptedCount();
+
+        Set<Long> touched = new HashSet<>();
+        long offset;
+        List<String> header;
+        try (AppendedCsvReader reader = new AppendedCsvReader(products, state.offset, state.header)) {
+            AggregationEngine engine = state.engine;
+            try (Stream<CsvRow> appended = reader.rows()) {
+                new ProductRowBinder().forEachProduct(appended, product -> {
+                    if (engine.accept(product)) {
+                        touched.add(product.getMatchingId());
+                    }
+                });
+            }
+            offset = reader.offset();
+            CsvSchema schema = reader.getSchema();
+            header = schema == null ? null : schema.names();
+        } catch (IOException ex) {
+            throw new ParseException(ex);
+        }
+        logger.debug("Processed products up to offset {}, {} matchings updated", offset, touched.size());
+
+        if (header != null) {
+            writeState(products, stateFile, new State(state.engine, offset, header));
+        }
+        Stream<AggregationResult> results = state.engine.results();
+        if (recorder != null) {
+            recorder.end(begin, state.engine.acceptedCount() - restored, 0);
+            recorder.flush();
+        }
+        logger.debug("Incremental data processing completed");
+        return PipelineMetrics.INSTANCE.countRowsOut(PipelineMetrics.Stage.AGGREGATE, results);
+    }
+
+    private AggregationEngine newEngine() {
+        return new AggregationEngine(matchingRepository.findAll(), currencyRepository);
+    }
+
+    /**
+     * Returns saved state if it is still valid for the products file, otherwise
+     * {@code null}.
+     */
+    private State readState(Path products, Path stateFile) {
+        if (!Files.isRegularFile(stateFile)) {
+            return null;
+        }
+        try (DataInputStream input = new DataInputStream(new BufferedInputStream(Files.newInputStream(stateFile)))) {
+            if (input.readLong() != MAGIC || input.readInt() != VERSION) {
+                return null;
+            }
+            long offset = input.readLong();
+            long guard = input.readLong();
+            if (offset <= 0 || Files.size(products) < offset || guard(products, offset) != guard) {
+                logger.debug("Products file changed, aggregating from the start");
+                return null;
+            }
+            int columns = input.readInt();
+            List<String> header = new ArrayList<>(columns);
+            for (int i = 0; i < columns; i++) {
+                header.add(input.readUTF());
+            }
+            AggregationEngine engine = newEngine();
+            if (!engine.readState(input)) {
+                logger.debug("Matchings or currencies changed, aggregating from the start");
+                return null;
+            }
+            return new State(engine, offset, header);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Can't read state '{}', aggregating from the start", stateFile, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Writes state for the next call. Failures are logged, the next call then
+     * continues from the previous state.
+     */
+    private void writeState(Path products, Path stateFile, State state) {
+        Path temporary = stateFile.resolveSibling(stateFile.getFileName() + ".tmp");
+        try {
+            try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(
+                    Files.newOutputStream(temporary)))) {
+                output.writeLong(MAGIC);
+                output.writeInt(VERSION);
+                output.writeLong(state.offset);
+                output.writeLong(guard(products, state.offset));
+                output.writeInt(state.header.size());
+                for (String column : state.header) {
+                    output.writeUTF(column);
+                }
+                state.engine.writeState(output);
+            }
+            Files.move(temporary, stateFile, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException ex) {
+            logger.warn("Can't write state '{}'", stateFile, ex);
+            try {
+                Files.deleteIfExists(temporary);
+            } catch (IOException ignored) {
+                // nothing else can be done, the file is left behind
+            }
+        }
+    }
+
+    /**
+     * Returns checksum of the bytes right before given offset, which tells if
+     * the processed part of the file is still the same.
+     */
+    private static long guard(Path products, long offset) throws IOException {
+        long from = Math.max(0, offset - GUARD_LENGTH);
+        ByteBuffer buffer = ByteBuffer.allocate((int) (offset - from));
+        try (FileChannel channel = FileChannel.open(products, StandardOpenOption.READ)) {
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, from + buffer.position()) < 0) {
+                    return -1;
+                }
+            }
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array());
+        return crc.getValue();
+    }
+
+    /**
+     * Aggregation state with the offset and header of the products file.
+     */
+    private static class State {
+        final AggregationEngine engine;
+        final long offset;
+        final List<String> header;
+
+        State(AggregationEngine engine, long offset, List<String> header) {
+            this.engine = engine;
+            this.offset = offset;
+            this.header = header;
+        }
+    }
+}
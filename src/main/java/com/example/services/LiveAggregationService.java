@@ -0,0 +1,212 @@
+package com.example.services;
+
+import com.example.exceptions.ProcessingException;
+import com.example.pojo.AggregationResult;
+import com.example.pojo.Matching;
+import com.example.pojo.Product;
+import com.example.repositories.CurrencyRepository;
+import com.example.repositories.MatchingRepository;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Service keeping aggregation state of changing products in memory.
+ *
+ * Products are inserted, updated and deleted one by one. Every matching keeps
+ * its products in a balanced tree ordered by descending converted total price,
+ * ties are resolved by insertion order, so a change costs {@code O(log n)} and
+ * results of a matching are read from the head of the tree in {@code O(K)}.
+ * Deleting a selected product brings the next one into the selection without
+ * rescanning products. Results are the same as the ones of
+ * {@link AggregationService} for the current products in insertion order.
+ *
+ * Products of unknown matchings are tracked only by id, so they may be updated
+ * or deleted later.
+ *
+ * Not thread safe.
+ */
+public class LiveAggregationService {
+
+    private static final Comparator<Entry> RANKING = Comparator
+            .comparingDouble((Entry entry) -> entry.key).reversed()
+            .thenComparingLong(entry -> entry.ref);
+
+    private final List<Matching> matchings;
+    private final Map<Long, List<Matching>> matchingsById = new HashMap<>();
+    private final Map<Long, TreeSet<Entry>> states = new HashMap<>();
+    private final Map<Long, Entry> products = new HashMap<>();
+    private final CurrencyRepository currencyRepository;
+
+    private long sequence;
+
+    public LiveAggregationService(MatchingRepository matchingRepository, CurrencyRepository currencyRepository) {
+        this.currencyRepository = currencyRepository;
+        try (Stream<Matching> all = matchingRepository.findAll()) {
+            this.matchings = all.collect(Collectors.toList());
+        }
+        for (Matching matching : matchings) {
+            matchingsById.computeIfAbsent(matching.getMatchingId(), id -> new ArrayList<>()).add(matching);
+            states.computeIfAbsent(matching.getMatchingId(), id -> new TreeSet<>(RANKING));
+        }
+    }
+
+    /**
+     * Adds new product.
+     *
+     * @param product The product with id that is not present yet
+     *
+     * @throws IllegalStateException If product with the same id is present
+     * @throws ProcessingException If currency of the product is unknown
+     */
+    public void insert(Product product) {
+        checkState(!products.containsKey(product.getId()), "Product %s is already present", product.getId());
+        add(entry(product, sequence++));
+    }
+
+    /**
+     * Replaces present product with the same id. Updated product keeps the
+     * position of the replaced one in insertion order.
+     *
+     * @param product The new state of the product
+     *
+     * @throws IllegalStateException If product with the same id is not present
+     * @throws ProcessingException If currency of the product is unknown
+     */
+    public void update(Product product) {
+        Entry previous = products.get(product.getId());
+        checkState(previous != null, "Product %s is not present", product.getId());
+        Entry updated = entry(product, previous.ref);
+        remove(previous);
+        add(updated);
+    }
+
+    /**
+     * Removes product with given id.
+     *
+     * @param productId The id of the product
+     * @return {@code true} if the product was present
+     */
+    public boolean delete(long productId) {
+        Entry entry = products.get(productId);
+        if (entry == null) {
+            return false;
+        }
+        remove(entry);
+        return true;
+    }
+
+    /**
+     * Returns current aggregation results ordered by matchings and by
+     * descending converted total price inside each matching.
+     */
+    public Stream<AggregationResult> results() {
+        return matchings.stream()
+                .flatMap(this::resultsForMatching);
+    }
+
+    /**
+     * Returns current aggregation results of given matching ordered by
+     * descending converted total price, or no results if the matching is unknown.
+     *
+     * @param matchingId The id of the matching
+     */
+    public Stream<AggregationResult> results(long matchingId) {
+        List<Matching> found = matchingsById.get(matchingId);
+        return found == null ? Stream.empty() : found.stream().flatMap(this::resultsForMatching);
+    }
+
+    private Stream<AggregationResult> resultsForMatching(Matching matching) {
+        TreeSet<Entry> state = states.get(matching.getMatchingId());
+        int limit = (int) Math.min(matching.getTopPricedCount(), state.size());
+        long ignoredCount = Math.max(0, state.size() - matching.getTopPricedCount());
+
+        List<Entry> selected = new ArrayList<>(limit);
+        Iterator<Entry> entries = state.iterator();
+        while (selected.size() < limit) {
+            selected.add(entries.next());
+        }
+        double[] unitPrices = new double[limit];
+        for (int i = 0; i < limit; i++) {
+            unitPrices[i] = selected.get(i).key / selected.get(i).product.getQuantity();
+        }
+        double priceAverage = Arrays.stream(unitPrices).average().orElse(0);
+
+        return selected.stream()
+                .map(entry -> new AggregationResult(
+                        matching.getMatchingId(),
+                        getTotalPrice(entry.product),
+                        priceAverage / currencyRepository.getRatio(entry.currencyCode),
+                        entry.product.getCurrency(),
+                        ignoredCount));
+    }
+
+    private void add(Entry entry) {
+        products.put(entry.product.getId(), entry);
+        TreeSet<Entry> state = states.get(entry.product.getMatchingId());
+        if (state != null) {
+            state.add(entry);
+        }
+    }
+
+    private void remove(Entry entry) {
+        products.remove(entry.product.getId());
+        TreeSet<Entry> state = states.get(entry.product.getMatchingId());
+        if (state != null) {
+            state.remove(entry);
+        }
+    }
+
+    /**
+     * Returns entry of the product ranked by converted total price. Products of
+     * unknown matchings are never ranked, their key is {@code 0} and their
+     * currency is not looked up.
+     */
+    private Entry entry(Product product, long ref) {
+        if (!states.containsKey(product.getMatchingId())) {
+            return new Entry(product, -1, 0, ref);
+        }
+        int currencyCode = getCurrencyCode(product.getCurrency());
+        return new Entry(product, currencyCode,
+                getTotalPrice(product) * currencyRepository.getRatio(currencyCode), ref);
+    }
+
+    private double getTotalPrice(Product product) {
+        return product.getQuantity() * product.getPrice();
+    }
+
+    private int getCurrencyCode(String currency) {
+        int code = currencyRepository.getCurrencyCode(currency);
+        if (code < 0) {
+            throw new ProcessingException(String.format("Can't find currency '%s'", currency));
+        }
+        return code;
+    }
+
+    /**
+     * Product with its currency code, ranking key and position in insertion order.
+     */
+    private static class Entry {
+        final Product product;
+        final int currencyCode;
+        final double key;
+        final long ref;
+
+        Entry(Product product, int currencyCode, double key, long ref) {
+            this.product = product;
+            this.currencyCode = currencyCode;
+            this.key = key;
+            this.ref = ref;
+        }
+    }
+}
@@ -0,0 +1,325 @@
+package com.example.services;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Bounded selector of the {@code limit} highest ranked items offered to it.
+ *
+ * Items are ranked by primitive {@code double} key in descending order, ties are
+ * resolved by reference in ascending order, so offering items in encounter order
+ * gives the same result as a stable descending sort.
+ *
+ * Small limits are served by a min-heap on the keys ({@code O(n log K)}). For
+ * larger limits, which are typically close to the group size, items are buffered
+ * up to {@code 2 * limit} and trimmed with in-place quickselect, which is
+ * {@code O(n)} amortized. Memory is {@code O(K)} in both cases and is allocated
+ * lazily, so a huge limit over a small group costs the size of the group.
+ *
+ * Not thread safe.
+ *
+ * @param <T> Type of payload kept with each item
+ */
+public class TopKSelector<T> {
+
+    static final int HEAP_LIMIT = 256;
+
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+    private static final int INITIAL_CAPACITY = 8;
+
+    private final int limit;
+    private final int maxCapacity;
+    private final boolean heapMode;
+
+    private double[] keys = new double[0];
+    private long[] refs = new long[0];
+    private Object[] payloads = new Object[0];
+
+    private int size;
+    private long offered;
+    private boolean heapified;
+    private boolean hasFloor;
+    private double floorKey;
+    private long floorRef;
+    private boolean sorted;
+
+    public TopKSelector(long limit) {
+        checkState(limit >= 0, "Limit should be greater or equal to zero");
+        this.limit = (int) Math.min(limit, MAX_CAPACITY);
+        this.heapMode = this.limit <= HEAP_LIMIT;
+        this.maxCapacity = heapMode ? this.limit : (int) Math.min(2L * this.limit, MAX_CAPACITY);
+    }
+
+    /**
+     * Offers the item to the selector.
+     *
+     * @param key The ranking key, higher keys are selected first
+     * @param ref The reference of the item, lower references win ties
+     * @param payload The payload kept with the item
+     */
+    public void offer(double key, long ref, T payload) {
+        offered++;
+        sorted = false;
+        if (limit == 0) {
+            return;
+        }
+        if (heapMode) {
+            offerToHeap(key, ref, payload);
+        } else {
+            offerToBuffer(key, ref, payload);
+        }
+    }
+
+    /**
+     * Returns number of items offered to the selector so far.
+     */
+    public long offered() {
+        return offered;
+    }
+
+    /**
+     * Returns number of items retained by the selector, never greater than the limit
+     * after {@link #sortDescending()}.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Trims retained items to the limit and orders them from the highest ranked
+     * to the lowest one. Items are accessible by position afterwards.
+     */
+    public void sortDescending() {
+        if (sorted) {
+            return;
+        }
+        if (size > limit) {
+            select(limit);
+            size = limit;
+        }
+        heapify();
+        for (int end = size - 1; end > 0; end--) {
+            swap(0, end);
+            siftDown(0, end);
+        }
+        heapified = false;
+        hasFloor = false;
+        sorted = true;
+    }
+
+    /**
+     * Restores sorted selection saved from another selector of the same limit.
+     * Selector stays sorted, so items may be accessed by position or more items
+     * may be offered right away.
+     *
+     * @param offered The number of items offered to the saved selector
+     * @param keys The keys of the selected items from the highest ranked one
+     * @param refs The references of the selected items
+     * @param payloads The payloads of the selected items
+     */
+    public void restore(long offered, double[] keys, long[] refs, List<T> payloads) {
+        int count = keys.length;
+        checkState(this.offered == 0, "Selector should be empty");
+        checkState(refs.length == count && payloads.size() == count, "Saved selection should be consistent");
+        checkState(count <= limit && count <= offered, "Saved selection should not exceed the limit");
+        for (int i = 1; i < count; i++) {
+            checkState(higher(keys[i - 1], refs[i - 1], keys[i], refs[i]), "Saved selection should be sorted");
+        }
+        this.keys = Arrays.copyOf(keys, count);
+        this.refs = Arrays.copyOf(refs, count);
+        this.payloads = payloads.toArray();
+        this.size = count;
+        this.offered = offered;
+        this.sorted = true;
+    }
+
+    /**
+     * Returns key of the item at given position of sorted selection.
+     */
+    public double key(int index) {
+        checkSortedIndex(index);
+        return keys[index];
+    }
+
+    /**
+     * Returns reference of the item at given position of sorted selection.
+     */
+    public long ref(int index) {
+        checkSortedIndex(index);
+        return refs[index];
+    }
+
+    /**
+     * Returns payload of the item at given position of sorted selection.
+     */
+    @SuppressWarnings("unchecked")
+    public T payload(int index) {
+        checkSortedIndex(index);
+        return (T) payloads[index];
+    }
+
+    private void offerToHeap(double key, long ref, T payload) {
+        if (size < limit) {
+            append(key, ref, payload);
+            return;
+        }
+        if (!heapified) {
+            heapify();
+        }
+        if (higher(key, ref, keys[0], refs[0])) {
+            set(0, key, ref, payload);
+            siftDown(0, size);
+        }
+    }
+
+    private void offerToBuffer(double key, long ref, T payload) {
+        if (hasFloor && !higher(key, ref, floorKey, floorRef)) {
+            return;
+        }
+        if (size == maxCapacity) {
+            select(limit);
+            size = limit;
+            int floor = lowestOfSelected();
+            hasFloor = true;
+            floorKey = keys[floor];
+            floorRef = refs[floor];
+            if (!higher(key, ref, floorKey, floorRef)) {
+                return;
+            }
+        }
+        append(key, ref, payload);
+    }
+
+    private void append(double key, long ref, T payload) {
+        if (size == keys.length) {
+            grow();
+        }
+        set(size++, key, ref, payload);
+    }
+
+    private void grow() {
+        int capacity = (int) Math.min(Math.max(INITIAL_CAPACITY, 2L * keys.length), maxCapacity);
+        double[] newKeys = new double[capacity];
+        long[] newRefs = new long[capacity];
+        Object[] newPayloads = new Object[capacity];
+        System.arraycopy(keys, 0, newKeys, 0, size);
+        System.arraycopy(refs, 0, newRefs, 0, size);
+        System.arraycopy(payloads, 0, newPayloads, 0, size);
+        keys = newKeys;
+        refs = newRefs;
+        payloads = newPayloads;
+    }
+
+    private int lowestOfSelected() {
+        int lowest = 0;
+        for (int i = 1; i < size; i++) {
+            if (higher(keys[lowest], refs[lowest], keys[i], refs[i])) {
+                lowest = i;
+            }
+        }
+        return lowest;
+    }
+
+    /**
+     * Rearranges items so that the {@code k} highest ranked ones occupy
+     * positions {@code [0, k)}.
+     */
+    private void select(int k) {
+        int lo = 0;
+        int hi = size - 1;
+        while (lo < hi) {
+            int pivot = partition(lo, hi);
+            if (pivot == k) {
+                return;
+            }
+            if (pivot < k) {
+                lo = pivot + 1;
+            } else {
+                hi = pivot - 1;
+            }
+        }
+    }
+
+    private int partition(int lo, int hi) {
+        int mid = (lo + hi) >>> 1;
+        if (higher(mid, lo)) {
+            swap(mid, lo);
+        }
+        if (higher(hi, lo)) {
+            swap(hi, lo);
+        }
+        if (higher(mid, hi)) {
+            swap(mid, hi);
+        }
+        int store = lo;
+        for (int i = lo; i < hi; i++) {
+            if (higher(i, hi)) {
+                swap(i, store++);
+            }
+        }
+        swap(store, hi);
+        return store;
+    }
+
+    private void heapify() {
+        for (int i = (size >>> 1) - 1; i >= 0; i--) {
+            siftDown(i, size);
+        }
+        heapified = true;
+    }
+
+    private void siftDown(int index, int heapSize) {
+        while (true) {
+            int left = 2 * index + 1;
+            if (left >= heapSize) {
+                return;
+            }
+            int lowest = left;
+            int right = left + 1;
+            if (right < heapSize && higher(left, right)) {
+                lowest = right;
+            }
+            if (!higher(index, lowest)) {
+                return;
+            }
+            swap(index, lowest);
+            index = lowest;
+        }
+    }
+
+    private boolean higher(int first, int second) {
+        return higher(keys[first], refs[first], keys[second], refs[second]);
+    }
+
+    private static boolean higher(double firstKey, long firstRef, double secondKey, long secondRef) {
+        int cmp = Double.compare(firstKey, secondKey);
+        return cmp > 0 || (cmp == 0 && firstRef < secondRef);
+    }
+
+    private void set(int index, double key, long ref, T payload) {
+        keys[index] = key;
+        refs[index] = ref;
+        payloads[index] = payload;
+    }
+
+    private void swap(int first, int second) {
+        double key = keys[first];
+        keys[first] = keys[second];
+        keys[second] = key;
+
+        long ref = refs[first];
+        refs[first] = refs[second];
+        refs[second] = ref;
+
+        Object payload = payloads[first];
+        payloads[first] = payloads[second];
+        payloads[second] = payload;
+    }
+
+    private void checkSortedIndex(int index) {
+        checkState(sorted, "Selection should be sorted before access");
+        checkState(index >= 0 && index < size, "Index is out of selection bounds");
+    }
+}
@@ -1,18 +1,22 @@
 package com.example.util;
 
 import com.example.exceptions.FileWriteException;
+import com.example.metrics.PipelineMetrics;
+import com.example.metrics.StageRecorder;
 import com.example.pojo.AggregationResult;
-import com.google.common.base.Charsets;
-import com.google.common.base.Joiner;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
-import java.util.Arrays;
+import java.util.Iterator;
 import java.util.stream.Stream;
 
 /**
@@ -23,6 +27,13 @@ public class AggregationFileWriter {
 
     public static final AggregationFileWriter INSTANCE = new AggregationFileWriter();
 
+    private static final int BUFFER_SIZE = 1024 * 1024;
+    private static final int BATCH_ROWS = 1024;
+    private static final byte SEPARATOR = ',';
+    private static final byte[] LINE_SEPARATOR = System.lineSeparator().getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] HEADER = "matching_id,total_price,avg_price,currency,ignored_products_count"
+            .getBytes(StandardCharsets.US_ASCII);
+
     private AggregationFileWriter() {
     }
 
@@ -30,47 +41,104 @@ public class AggregationFileWriter {
         write(aggregationStream, "top_products.csv");
     }
 
+    /**
+     * Writes results to the file with given name as they come from the stream.
+     *
+     * Rows are encoded into a reusable buffer which is written to the file in
+     * large chunks, so memory used by the writer doesn't depend on the number of
+     * rows. Rows are written to a temporary file next to the target one, which
+     * replaces the target only once all rows are written.
+     *
+     * Results are pulled from the stream in batches outside of the write stage
+     * measurements, so computing lazy results is not recorded as writing.
+     *
+     * @param aggregationStream The stream of results
+     * @param outputFileName The name of the output file
+     *
+     * @throws FileWriteException If the file can't be written
+     */
     public void write(Stream<AggregationResult> aggregationStream, String outputFileName) {
-        StringBuilder sb = new StringBuilder();
-        Joiner joiner = Joiner.on(",");
-        joiner.appendTo(sb, Arrays.asList("matching_id", "total_price", "avg_price", "currency", "ignored_products_count"));
-
-        sb.append(System.lineSeparator());
+        logger.debug("Writing to file '{}'", outputFileName);
+        Path target = Paths.get(new File(outputFileName).toURI());
+        Path temporary = target.resolveSibling(target.getFileName() + ".tmp");
+        StageRecorder recorder = StageRecorder.of(PipelineMetrics.Stage.WRITE);
+        try {
+            try (FileChannel channel = FileChannel.open(temporary,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 ChannelOutput output = new ChannelOutput(channel, BUFFER_SIZE)) {
 
-        aggregationStream.forEach(r -> {
-                joiner.appendTo(sb,
-                    Arrays.asList(
-                        r.getMatchingId(),
-                        doubleToStringWithLimitedPrecision(r.getTotalPrice()),
-                        doubleToStringWithLimitedPrecision(r.getAvgPrice()),
-                        r.getCurrency(),
-                        r.getIgnoredProductsCount())
-                );
-                sb.append(System.lineSeparator());
+                long begin = recorder != null ? recorder.begin() : 0;
+                output.put(HEADER).put(LINE_SEPARATOR);
+                if (recorder != null) {
+                    recorder.end(begin, 0, 0);
+                }
+                Iterator<AggregationResult> results = aggregationStream.iterator();
+                AggregationResult[] batch = new AggregationResult[BATCH_ROWS];
+                int count;
+                while ((count = nextBatch(results, batch)) > 0) {
+                    begin = recorder != null ? recorder.begin() : 0;
+                    for (int i = 0; i < count; i++) {
+                        writeRow(output, batch[i]);
+                    }
+                    if (recorder != null) {
+                        recorder.end(begin, count, 0);
+                    }
+                }
+                begin = recorder != null ? recorder.begin() : 0;
+                output.flush();
+                if (recorder != null) {
+                    recorder.end(begin, 0, 0);
+                }
             }
-        );
-
-        writeToFile(outputFileName, sb);
+            if (recorder != null) {
+                recorder.addBytesWritten(Files.size(temporary));
+            }
+            Files.move(temporary, target, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ex) {
+            logger.error("Can't write file", ex);
+            deleteQuietly(temporary);
+            throw new FileWriteException(ex);
+        } catch (RuntimeException ex) {
+            deleteQuietly(temporary);
+            throw ex;
+        }
+        if (recorder != null) {
+            recorder.flush();
+        }
+        logger.debug("File written");
     }
 
-    private String doubleToStringWithLimitedPrecision(double value) {
-        return String.format("%.3f", value);
+    /**
+     * Fills the batch with next results and returns their number, which is
+     * zero once results are exhausted.
+     */
+    private static int nextBatch(Iterator<AggregationResult> results, AggregationResult[] batch) {
+        int count = 0;
+        while (count < batch.length && results.hasNext()) {
+            batch[count++] = results.next();
+        }
+        return count;
     }
 
-    private void writeToFile(String fileName, StringBuilder contents) {
-        logger.debug("Writing to file '{}'", fileName);
+    private void writeRow(ChannelOutput output, AggregationResult result) {
         try {
-            Files.write(
-                    Paths.get(new File(fileName).toURI()),
-                    contents.toString().getBytes(Charsets.UTF_8),
-                    StandardOpenOption.CREATE,
-                    StandardOpenOption.TRUNCATE_EXISTING
-            );
+            output.putLong(result.getMatchingId()).put(SEPARATOR)
+                    .putFixed3(result.getTotalPrice()).put(SEPARATOR)
+                    .putFixed3(result.getAvgPrice()).put(SEPARATOR)
+                    .put(result.getCurrency()).put(SEPARATOR)
+                    .putLong(result.getIgnoredProductsCount())
+                    .put(LINE_SEPARATOR);
         } catch (IOException ex) {
-            logger.error("Can't write file", ex);
             throw new FileWriteException(ex);
         }
-        logger.debug("File written");
+    }
+
+    private void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException ex) {
+            logger.warn("Can't delete file '{}'", file, ex);
+        }
     }
 
 }
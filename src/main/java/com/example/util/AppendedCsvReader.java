@@ -0,0 +1,104 @@
+package com.example.util;
+
+import com.example.exceptions.FileNotFoundException;
+import com.example.exceptions.ParseException;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Reader of comma-separated records appended to a file after given offset.
+ *
+ * Only records terminated by a line break are read, so a record that is still
+ * being written is left for the next reader. {@link #offset()} tells where the
+ * next reader should start once the rows are consumed.
+ */
+public class AppendedCsvReader implements Closeable {
+
+    private final MappedFileSource source;
+    private final CsvRecordReader records;
+    private final CsvSchema schema;
+
+    /**
+     * Opens the file for reading records after given offset.
+     *
+     * @param path The path of the comma-separated file
+     * @param offset The offset of the first record to read, {@code 0} to read
+     *               the file from the header
+     * @param header The header read before, or {@code null} if offset is {@code 0}
+     *
+     * @throws FileNotFoundException If file can't be opened
+     * @throws ParseException If the offset is beyond the end of the file
+     */
+    public AppendedCsvReader(Path path, long offset, List<String> header) {
+        checkState((offset == 0) == (header == null), "Header should be given for non-zero offset only");
+        source = new MappedFileSource(path);
+        try {
+            if (offset > source.size()) {
+                throw new ParseException(String.format("File is shorter than offset %d", offset));
+            }
+            CsvSchema known = header == null ? null : CsvSchema.of(header);
+            records = new CsvRecordReader(source, new CsvTokenizer(','), CsvRecordReader.DEFAULT_WINDOW_LENGTH, known)
+                    .startAt(offset)
+                    .completeRecordsOnly();
+            schema = known == null ? records.readHeader() : known;
+        } catch (RuntimeException ex) {
+            closeQuietly();
+            throw ex;
+        }
+    }
+
+    /**
+     * Returns schema of the rows or {@code null} if the header is not written yet.
+     */
+    public CsvSchema getSchema() {
+        return schema;
+    }
+
+    /**
+     * Returns a lazy stream of complete appended rows.
+     *
+     * @throws ParseException
+     *         While consuming the stream, if some row has different number
+     *         of cells than the header
+     */
+    public Stream<CsvRow> rows() {
+        if (schema == null) {
+            return Stream.empty();
+        }
+        Spliterator<CsvRow> rows = Spliterators.spliteratorUnknownSize(
+                records, Spliterator.ORDERED | Spliterator.NONNULL);
+        return StreamSupport.stream(rows, false);
+    }
+
+    /**
+     * Returns offset right after the last consumed record.
+     */
+    public long offset() {
+        return records.offset();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+
+    private void closeQuietly() {
+        try {
+            source.close();
+        } catch (IOException ignored) {
+            // the original failure is more relevant
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package com.example.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Source of bytes that is read window by window.
+ */
+public interface ByteSource extends Closeable {
+
+    /**
+     * Returns buffer with bytes of the source starting at given offset.
+     *
+     * Buffer position is {@code 0} and its limit is the number of available
+     * bytes. The limit is less than {@code length} only if the source ends
+     * inside the requested window.
+     *
+     * @param offset The absolute offset of the first byte of the window
+     * @param length The requested length of the window
+     * @return Buffer with window bytes
+     *
+     * @throws IOException If reading of the source failed
+     */
+    ByteBuffer window(long offset, int length) throws IOException;
+}
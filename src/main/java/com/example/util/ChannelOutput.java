@@ -0,0 +1,120 @@
+package com.example.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Output that encodes values straight into a reusable byte buffer and writes
+ * the buffer to a channel whenever it is full.
+ *
+ * Memory used by the output is the size of the buffer, however many values are
+ * written. Not thread safe, the channel is not closed together with the output.
+ */
+class ChannelOutput implements Closeable {
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+
+    /**
+     * Creates output for given channel.
+     *
+     * @param channel The channel receiving bytes
+     * @param bufferSize The size of the buffer, at least {@code 32} bytes
+     */
+    ChannelOutput(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(Math.max(32, bufferSize));
+    }
+
+    /**
+     * Writes a single byte.
+     */
+    ChannelOutput put(byte value) throws IOException {
+        ensureRemaining(1);
+        buffer.put(value);
+        return this;
+    }
+
+    /**
+     * Writes given bytes.
+     */
+    ChannelOutput put(byte[] value) throws IOException {
+        int offset = 0;
+        while (offset < value.length) {
+            ensureRemaining(1);
+            int length = Math.min(buffer.remaining(), value.length - offset);
+            buffer.put(value, offset, length);
+            offset += length;
+        }
+        return this;
+    }
+
+    /**
+     * Writes UTF-8 bytes of the string. ASCII strings are encoded without allocation.
+     */
+    ChannelOutput put(String value) throws IOException {
+        for (int i = 0; i < value.length(); i++) {
+            if (value.charAt(i) >= 0x80) {
+                return put(value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        for (int i = 0; i < value.length(); i++) {
+            ensureRemaining(1);
+            buffer.put((byte) value.charAt(i));
+        }
+        return this;
+    }
+
+    /**
+     * Writes decimal representation of the value, same as {@link Long#toString(long)}.
+     */
+    ChannelOutput putLong(long value) throws IOException {
+        ensureRemaining(NumberFormatter.MAX_LONG_LENGTH);
+        NumberFormatter.putLong(value, buffer);
+        return this;
+    }
+
+    /**
+     * Writes the value rounded to 3 fraction digits, same as
+     * {@code String.format("%.3f", value)}.
+     */
+    ChannelOutput putFixed3(double value) throws IOException {
+        ensureRemaining(NumberFormatter.MAX_FIXED3_LENGTH);
+        if (NumberFormatter.putFixed3(value, buffer)) {
+            return this;
+        }
+        return put(String.format("%.3f", value));
+    }
+
+    /**
+     * Writes buffered bytes to the channel.
+     */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Flushes buffered bytes, the channel stays open.
+     */
+    @Override
+    public void close() throws IOException {
+        flush();
+    }
+
+    /**
+     * Makes sure the buffer has at least given number of bytes remaining,
+     * which should not exceed capacity of the buffer.
+     */
+    private void ensureRemaining(int length) throws IOException {
+        if (buffer.remaining() < length) {
+            flush();
+        }
+    }
+}
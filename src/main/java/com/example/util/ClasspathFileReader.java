@@ -4,6 +4,7 @@ import com.example.exceptions.FileNotFoundException;
 
 import java.net.URI;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.stream.Stream;
 
@@ -28,9 +29,27 @@ public class ClasspathFileReader {
      *         resolvable via classpath
      */
     public Stream<String> readFile(String name) {
+        try {
+            return Files.lines(resolve(name));
+        } catch (Exception ex) {
+            throw new FileNotFoundException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns a filesystem path of the classpath file.
+     *
+     * @param name The name of classpath resource
+     * @return Path of the resource
+     *
+     * @throws FileNotFoundException
+     *         If {@code name} is {@code null} or file is not
+     *         resolvable via classpath
+     */
+    public Path resolve(String name) {
         try {
             URI uri = ClassLoader.getSystemResource(name).toURI();
-            return Files.lines(Paths.get(uri));
+            return Paths.get(uri);
         } catch (Exception ex) {
             throw new FileNotFoundException(ex.getMessage());
         }
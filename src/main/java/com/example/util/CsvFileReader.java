@@ -2,22 +2,56 @@ package com.example.util;
 
 import com.example.exceptions.FileNotFoundException;
 import com.example.exceptions.ParseException;
-import com.google.common.base.Splitter;
-import com.google.common.collect.ImmutableMap;
 
+import org.apache.commons.lang3.StringUtils;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.Iterator;
 import java.util.List;
-import java.util.stream.Collectors;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+import static com.google.common.base.Preconditions.checkState;
 
 /**
- * Utility class that loads given resource from classpath and splits
- * each line by given delimiter.
+ * Utility class that loads given resource from classpath or filesystem and
+ * splits each record by given delimiter.
+ *
+ * Records follow RFC 4180 quoting rules, so quoted cells may contain
+ * delimiters, line breaks and escaped quotes. Unquoted cells are trimmed.
+ *
+ * A file given by name may be split into shards that share the header, see
+ * {@link #resolveShards(String)}.
  */
 public class CsvFileReader {
 
     public static final CsvFileReader INSTANCE = new CsvFileReader();
 
+    private static final long PARALLEL_RANGE_LENGTH = 4 * 1024 * 1024;
+    private static final int SHARD_THREADS = Runtime.getRuntime().availableProcessors();
+    private static final String GLOB_CHARACTERS = "*?[{";
+    private static final String[] SHARD_SUFFIXES = {".csv", ".csv.gz"};
+
     private CsvFileReader() {
     }
 
@@ -29,58 +63,406 @@ public class CsvFileReader {
      *
      * @throws FileNotFoundException
      *         If {@code name} is {@code null} or file can't be found
-     *         in the classpath
+     *         in the classpath or filesystem
      */
     public Stream<CsvRow> readFile(String name) {
         return readFile(name, ",");
     }
 
     /**
-     * Returns a stream of rows for a given comma-separated file.
+     * Returns a lazy stream of rows for a given comma-separated file.
      *
-     * Lines are represented as a lists of String values.
+     * Classpath resource with given name is preferred, otherwise name is treated
+     * as a filesystem path. Resolved file is read with {@link #readFile(Path, String)},
+     * shards of a file are read one after another with {@link #readShards(List, String)}.
+     *
+     * Header is read once when the stream is created, other records are read and
+     * split on demand while the stream is consumed, so memory used by the reader
+     * does not depend on the size of the file. The file is closed together with
+     * the returned stream.
      *
      * @param name The name of the delimiter-separated file
-     * @param delimiter The String representing delimiter
+     * @param delimiter The single ASCII character delimiter
      * @return Stream of rows
      *
      * @throws FileNotFoundException
      *         If {@code name} is {@code null} or file can't be found
-     *         in the classpath
+     *         in the classpath or filesystem
+     * @throws ParseException
+     *         While consuming the stream, if some row has different number
+     *         of cells than the header
      */
     public Stream<CsvRow> readFile(String name, String delimiter) {
-        List<List<String>> rows = ClasspathFileReader.INSTANCE.readFile(name)
-                .map(s -> Splitter.on(delimiter).trimResults().splitToList(s))
-                .collect(Collectors.toList());
+        return readShards(resolveShards(name), delimiter);
+    }
 
-        if (rows.isEmpty()) {
-            return Stream.empty();
+    /**
+     * Returns filesystem path of the file with given name. Classpath resource
+     * with given name is preferred, otherwise name is treated as a filesystem path.
+     *
+     * @param name The name of the file
+     * @return Path of the file
+     *
+     * @throws FileNotFoundException
+     *         If {@code name} is {@code null} or file can't be found
+     *         in the classpath or filesystem
+     */
+    public Path resolve(String name) {
+        Path path = filesystemPath(name);
+        if (path == null) {
+            path = ClasspathFileReader.INSTANCE.resolve(name);
         }
+        return path;
+    }
 
-        return handleRows(rows).stream();
+    /**
+     * Returns filesystem paths of the shards of the file with given name, ordered
+     * by their names.
+     *
+     * Name of a directory stands for all {@code .csv} and {@code .csv.gz} files
+     * of the directory. Name with glob characters in its last element stands for
+     * all files matching the glob, for example {@code data/data-*.csv}. Any other
+     * name stands for the single file returned by {@link #resolve(String)}.
+     *
+     * @param name The name of the file, directory or glob
+     * @return Paths of the shards, at least one
+     *
+     * @throws FileNotFoundException
+     *         If {@code name} is {@code null} or no file is found
+     */
+    public List<Path> resolveShards(String name) {
+        Path directory = null;
+        String glob = null;
+        try {
+            if (name != null && ClassLoader.getSystemResource(name) == null) {
+                Path path = Paths.get(name);
+                if (Files.isDirectory(path)) {
+                    directory = path;
+                } else if (path.getFileName() != null
+                        && StringUtils.containsAny(path.getFileName().toString(), GLOB_CHARACTERS)) {
+                    directory = path.getParent() != null ? path.getParent() : Paths.get("");
+                    glob = path.getFileName().toString();
+                }
+            }
+        } catch (Exception ex) {
+            directory = null;
+        }
+        if (directory == null) {
+            return Collections.singletonList(resolve(name));
+        }
+
+        List<Path> shards = new ArrayList<>();
+        PathMatcher matcher = glob == null ? null : directory.getFileSystem().getPathMatcher("glob:" + glob);
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+            for (Path file : files) {
+                if (Files.isRegularFile(file)
+                        && (matcher != null ? matcher.matches(file.getFileName()) : isShard(file))) {
+                    shards.add(file);
+                }
+            }
+        } catch (IOException ex) {
+            throw new FileNotFoundException(ex.getMessage());
+        }
+        if (shards.isEmpty()) {
+            throw new FileNotFoundException(String.format("No files found for '%s'", name));
+        }
+        shards.sort(Comparator.comparing(file -> file.getFileName().toString()));
+        return shards;
     }
 
-    private List<CsvRow> handleRows(List<List<String>> rows) {
-        List<String> header = new ArrayList<>();
-        List<CsvRow> result = new ArrayList<>(rows.size() - 1);
-        for (int i = 0; i < rows.size(); i++) {
-            if (i == 0) {
-                header = rows.get(0);
-            } else {
-                result.add(toRow(header, rows.get(i)));
+    /**
+     * Returns a lazy stream of rows of given shards read one after another with
+     * {@link #readFile(Path, String)}, only one shard is open at a time.
+     *
+     * @param paths The paths of the shards
+     * @param delimiter The single ASCII character delimiter
+     * @return Stream of rows of all shards in order of the paths
+     *
+     * @throws FileNotFoundException
+     *         If some file can't be opened
+     * @throws ParseException
+     *         While consuming the stream, if some row has different number
+     *         of cells than the header or shards have different headers
+     */
+    public Stream<CsvRow> readShards(List<Path> paths, String delimiter) {
+        checkState(delimiter != null && delimiter.length() == 1, "Delimiter should be a single ASCII character");
+        checkState(paths != null && !paths.isEmpty(), "Shards should be present");
+        if (paths.size() == 1) {
+            return readFile(paths.get(0), delimiter);
+        }
+        ShardHeaders headers = new ShardHeaders();
+        return paths.stream()
+                .flatMap(path -> readFile(path, delimiter).map(headers.checker(path)));
+    }
+
+    /**
+     * Reads given shards concurrently on a pool of as many threads as there are
+     * available processors.
+     *
+     * @see #readShards(List, String, int, Function)
+     */
+    public <T> List<T> readShards(List<Path> paths, String delimiter, Function<Stream<CsvRow>, T> reader) {
+        return readShards(paths, delimiter, SHARD_THREADS, reader);
+    }
+
+    /**
+     * Reads given shards concurrently and collects results of all shards.
+     *
+     * @param paths The paths of the shards
+     * @param delimiter The single ASCII character delimiter
+     * @param threads The maximum number of shards read at the same time
+     * @param reader The function consuming rows of a shard
+     * @param <T> Type of the result of a shard
+     * @return Results of the shards in order of the paths
+     *
+     * @throws FileNotFoundException
+     *         If some file can't be opened
+     * @throws ParseException
+     *         If some row has different number of cells than the header,
+     *         shards have different headers or the reading was interrupted
+     * @see #readShards(List, String, int, Function, Consumer)
+     */
+    public <T> List<T> readShards(List<Path> paths, String delimiter, int threads,
+                                  Function<Stream<CsvRow>, T> reader) {
+        List<T> shards = new ArrayList<>();
+        readShards(paths, delimiter, threads, reader, shards::add);
+        return shards;
+    }
+
+    /**
+     * Reads given shards concurrently on a pool of as many threads as there are
+     * available processors.
+     *
+     * @see #readShards(List, String, int, Function, Consumer)
+     */
+    public <T> void readShards(List<Path> paths, String delimiter, Function<Stream<CsvRow>, T> reader,
+                               Consumer<? super T> consumer) {
+        readShards(paths, delimiter, SHARD_THREADS, reader, consumer);
+    }
+
+    /**
+     * Reads given shards concurrently, rows of every shard are read with
+     * {@link #readFile(Path, String)} and consumed by the reader on a pool of
+     * at most given number of threads. A single shard is read on the calling
+     * thread.
+     *
+     * Results are passed to the consumer on the calling thread in order of the
+     * paths as soon as they are ready. A shard is started only once fewer than
+     * {@code threads} shards are being read or waiting for the consumer, so at
+     * most that many results are held at a time.
+     *
+     * @param paths The paths of the shards
+     * @param delimiter The single ASCII character delimiter
+     * @param threads The maximum number of shards read at the same time
+     * @param reader The function consuming rows of a shard
+     * @param consumer The receiver of the results of the shards
+     * @param <T> Type of the result of a shard
+     *
+     * @throws FileNotFoundException
+     *         If some file can't be opened
+     * @throws ParseException
+     *         If some row has different number of cells than the header,
+     *         shards have different headers or the reading was interrupted
+     */
+    public <T> void readShards(List<Path> paths, String delimiter, int threads,
+                               Function<Stream<CsvRow>, T> reader, Consumer<? super T> consumer) {
+        checkState(delimiter != null && delimiter.length() == 1, "Delimiter should be a single ASCII character");
+        checkState(paths != null && !paths.isEmpty(), "Shards should be present");
+        checkState(threads > 0, "Threads count should be greater than zero");
+        if (paths.size() == 1) {
+            try (Stream<CsvRow> rows = readFile(paths.get(0), delimiter)) {
+                consumer.accept(reader.apply(rows));
             }
+            return;
         }
-        return result;
+
+        ShardHeaders headers = new ShardHeaders();
+        int window = Math.min(threads, paths.size());
+        ExecutorService executor = Executors.newFixedThreadPool(window);
+        try {
+            Deque<Future<T>> pending = new ArrayDeque<>(window);
+            Iterator<Path> remaining = paths.iterator();
+            while (remaining.hasNext() || !pending.isEmpty()) {
+                while (remaining.hasNext() && pending.size() < window) {
+                    Path path = remaining.next();
+                    pending.add(executor.submit(() -> {
+                        try (Stream<CsvRow> rows = readFile(path, delimiter).map(headers.checker(path))) {
+                            return reader.apply(rows);
+                        }
+                    }));
+                }
+                consumer.accept(pending.poll().get());
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new ParseException(ex);
+        } catch (ExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) ex.getCause();
+            }
+            throw new ParseException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns a lazy stream of rows for a given comma-separated file on the filesystem.
+     *
+     * @param path The path of the comma-separated file
+     * @return Stream of rows
+     *
+     * @throws FileNotFoundException
+     *         If {@code path} is {@code null} or file can't be opened
+     */
+    public Stream<CsvRow> readFile(Path path) {
+        return readFile(path, ",");
+    }
+
+    /**
+     * Returns a lazy stream of rows for a given delimiter-separated file on
+     * the filesystem.
+     *
+     * The file is memory mapped window by window and cells are parsed directly
+     * from the mapped bytes, so content is never copied through the heap as
+     * a whole. Content is expected to be UTF-8 encoded.
+     *
+     * Files with {@code .gz} extension are decompressed while they are read,
+     * see {@link GzipFileSource}.
+     *
+     * @param path The path of the delimiter-separated file
+     * @param delimiter The single ASCII character delimiter
+     * @return Stream of rows
+     *
+     * @throws FileNotFoundException
+     *         If {@code path} is {@code null} or file can't be opened
+     * @throws ParseException
+     *         While consuming the stream, if some row has different number
+     *         of cells than the header
+     */
+    public Stream<CsvRow> readFile(Path path, String delimiter) {
+        checkState(delimiter != null && delimiter.length() == 1, "Delimiter should be a single ASCII character");
+        CsvTokenizer tokenizer = new CsvTokenizer(delimiter.charAt(0));
+        ByteSource source = path != null && GzipFileSource.isGzip(path)
+                ? new GzipFileSource(path)
+                : new MappedFileSource(path);
+        return toRows(new CsvRecordReader(source, tokenizer), () -> close(source));
+    }
+
+    /**
+     * Returns a lazy parallel stream of rows for a given delimiter-separated file,
+     * ranges of the file are scanned on the common pool.
+     *
+     * @param name The name of the delimiter-separated file
+     * @param delimiter The single ASCII character delimiter
+     * @return Parallel stream of rows
+     *
+     * @throws FileNotFoundException
+     *         If {@code name} is {@code null} or file can't be found
+     *         in the classpath or filesystem
+     * @see #readFileParallel(Path, String, ForkJoinPool)
+     */
+    public Stream<CsvRow> readFileParallel(String name, String delimiter) {
+        return readFileParallel(resolve(name), delimiter, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Returns a lazy parallel stream of rows for a given delimiter-separated file
+     * on the filesystem.
+     *
+     * After the header is read, the file is cut into byte ranges aligned to
+     * record boundaries, line breaks inside quoted cells are never taken as
+     * boundaries. Each range is parsed independently, so the stream is split
+     * by ranges and scales across cores. Rows keep the order of the file.
+     *
+     * Boundaries are found on the given pool before the stream is returned.
+     * Ranges are parsed on the pool running the terminal operation, which is
+     * the given pool if the operation is invoked from a task submitted to it and
+     * the common pool otherwise.
+     *
+     * Compressed files can't be cut into ranges, their rows are read
+     * sequentially by {@link #readFile(Path, String)} and the returned stream
+     * only parallelizes processing of the rows.
+     *
+     * @param path The path of the delimiter-separated file
+     * @param delimiter The single ASCII character delimiter
+     * @param pool The pool used to find range boundaries
+     * @return Parallel stream of rows
+     *
+     * @throws FileNotFoundException
+     *         If {@code path} is {@code null} or file can't be opened
+     * @throws ParseException
+     *         While consuming the stream, if some row has different number
+     *         of cells than the header
+     */
+    public Stream<CsvRow> readFileParallel(Path path, String delimiter, ForkJoinPool pool) {
+        return readFileParallel(path, delimiter, pool, PARALLEL_RANGE_LENGTH);
+    }
+
+    Stream<CsvRow> readFileParallel(Path path, String delimiter, ForkJoinPool pool, long rangeLength) {
+        checkState(delimiter != null && delimiter.length() == 1, "Delimiter should be a single ASCII character");
+        checkState(pool != null, "Pool should be present");
+        if (path != null && GzipFileSource.isGzip(path)) {
+            return readFile(path, delimiter).parallel();
+        }
+        CsvTokenizer tokenizer = new CsvTokenizer(delimiter.charAt(0));
+        MappedFileSource source = new MappedFileSource(path);
+        try {
+            CsvRecordReader header = new CsvRecordReader(source, tokenizer);
+            CsvSchema schema = header.readHeader();
+            if (schema == null) {
+                close(source);
+                return Stream.<CsvRow>empty().parallel();
+            }
+            long[] boundaries = RecordBoundaries.find(source, delimiter.charAt(0), header.offset(), source.size(),
+                    rangeLength, pool);
+            return StreamSupport.stream(new CsvRecordSpliterator(source, delimiter.charAt(0), schema, boundaries), true)
+                    .onClose(() -> close(source));
+        } catch (RuntimeException ex) {
+            close(source);
+            throw ex;
+        }
+    }
+
+    private Stream<CsvRow> toRows(CsvRecordReader records, Runnable onClose) {
+        try {
+            if (records.readHeader() == null) {
+                onClose.run();
+                return Stream.empty();
+            }
+
+            Spliterator<CsvRow> rows = Spliterators.spliteratorUnknownSize(
+                    records, Spliterator.ORDERED | Spliterator.NONNULL);
+            return StreamSupport.stream(rows, false)
+                    .onClose(onClose);
+        } catch (RuntimeException ex) {
+            onClose.run();
+            throw ex;
+        }
+    }
+
+    private static boolean isShard(Path path) {
+        String name = path.getFileName().toString();
+        return !name.startsWith(".") && StringUtils.endsWithAny(name, SHARD_SUFFIXES);
     }
 
-    private CsvRow toRow(List<String> header, List<String> values) {
-        if (header.size() != values.size()) {
-            throw new ParseException("Rows size is different");
+    private Path filesystemPath(String name) {
+        try {
+            if (name == null || ClassLoader.getSystemResource(name) != null) {
+                return null;
+            }
+            Path path = Paths.get(name);
+            return Files.isRegularFile(path) ? path : null;
+        } catch (Exception ex) {
+            return null;
         }
-        ImmutableMap.Builder<String, String> builder = ImmutableMap.builder();
-        for (int i = 0; i < header.size(); i++) {
-            builder.put(header.get(i), values.get(i));
+    }
+
+    private static void close(ByteSource source) {
+        try {
+            source.close();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
         }
-        return new CsvRow(builder.build());
     }
 }
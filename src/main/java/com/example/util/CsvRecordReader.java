@@ -0,0 +1,253 @@
+package com.example.util;
+
+import com.example.exceptions.ParseException;
+import com.example.metrics.PipelineMetrics;
+import com.example.metrics.StageRecorder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * Iterator over rows of delimiter-separated UTF-8 content that parses cells
+ * directly from the windows of a {@link ByteSource} with {@link CsvTokenizer}.
+ *
+ * The first record is the header, it has to be read with {@link #readHeader()}
+ * before rows are iterated, unless the schema is given to the reader. A window
+ * is moved to the start of the first incomplete record once it is exhausted and
+ * grows if a single record doesn't fit into it.
+ *
+ * Rows are split in batches of {@value #BATCH_ROWS}, so that splitting is
+ * measured once per batch. A failure is raised only after the rows split
+ * before it are consumed, as if rows were split one by one.
+ */
+class CsvRecordReader implements Iterator<CsvRow> {
+
+    static final int DEFAULT_WINDOW_LENGTH = 64 * 1024 * 1024;
+
+    private static final int MAX_WINDOW_LENGTH = Integer.MAX_VALUE - 8;
+    private static final int BATCH_ROWS = 1024;
+    private static final int PAGE_LENGTH = 4096;
+
+    private final ByteSource source;
+    private final CsvTokenizer tokenizer;
+    private final StageRecorder readRecorder = StageRecorder.of(PipelineMetrics.Stage.READ);
+    private final StageRecorder splitRecorder = StageRecorder.of(PipelineMetrics.Stage.SPLIT);
+
+    private int windowLength;
+    private ByteBuffer window = ByteBuffer.allocate(0);
+    private long windowOffset;
+    private int position;
+    private boolean lastWindow;
+    private long mappedEnd;
+
+    private CsvSchema schema;
+    private boolean completeRecordsOnly;
+
+    private final CsvRow[] batch = new CsvRow[BATCH_ROWS];
+    private final long[] batchEnds = new long[BATCH_ROWS];
+    private int batchSize;
+    private int batchPosition;
+    private long consumedOffset;
+    private RuntimeException failure;
+    private boolean ended;
+    private byte touched;
+
+    CsvRecordReader(ByteSource source, CsvTokenizer tokenizer) {
+        this(source, tokenizer, DEFAULT_WINDOW_LENGTH);
+    }
+
+    CsvRecordReader(ByteSource source, CsvTokenizer tokenizer, int windowLength) {
+        this(source, tokenizer, windowLength, null);
+    }
+
+    /**
+     * Creates reader of content without header, rows get given schema.
+     */
+    CsvRecordReader(ByteSource source, CsvTokenizer tokenizer, int windowLength, CsvSchema schema) {
+        this.source = source;
+        this.tokenizer = tokenizer;
+        this.windowLength = windowLength;
+        this.schema = schema;
+    }
+
+    /**
+     * Starts reading at given offset of the source, which should be the start
+     * of a record. Has to be called before anything is read.
+     *
+     * @param offset The offset of the first record to read
+     * @return This reader
+     */
+    CsvRecordReader startAt(long offset) {
+        windowOffset = offset;
+        return this;
+    }
+
+    /**
+     * Makes the reader stop before a trailing record that is not terminated by
+     * a line break, since it may still be being appended to the source.
+     *
+     * @return This reader
+     */
+    CsvRecordReader completeRecordsOnly() {
+        completeRecordsOnly = true;
+        return this;
+    }
+
+    /**
+     * Reads the header record.
+     *
+     * @return Schema built from the header or {@code null} if content is empty
+     */
+    CsvSchema readHeader() {
+        if (!readRecord()) {
+            return null;
+        }
+        List<String> names = new ArrayList<>(tokenizer.fieldCount());
+        for (int i = 0; i < tokenizer.fieldCount(); i++) {
+            names.add(tokenizer.field(i));
+        }
+        schema = CsvSchema.of(names);
+        return schema;
+    }
+
+    /**
+     * Returns offset of the first byte in the source that is not consumed yet,
+     * which is the start of the next record.
+     */
+    long offset() {
+        return batchPosition < batchSize ? consumedOffset : windowOffset + position;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean hasNext() {
+        if (batchPosition == batchSize) {
+            if (failure != null) {
+                RuntimeException ex = failure;
+                failure = null;
+                throw ex;
+            }
+            splitBatch();
+        }
+        return batchPosition < batchSize;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public CsvRow next() {
+        if (!hasNext()) {
+            throw new NoSuchElementException();
+        }
+        CsvRow row = batch[batchPosition];
+        batch[batchPosition] = null;
+        consumedOffset = batchEnds[batchPosition++];
+        return row;
+    }
+
+    /**
+     * Splits the next batch of rows. A failure after some rows is kept until
+     * the rows are consumed.
+     */
+    private void splitBatch() {
+        batchSize = 0;
+        batchPosition = 0;
+        consumedOffset = windowOffset + position;
+        if (ended) {
+            return;
+        }
+        long begin = splitRecorder != null ? splitRecorder.begin() : 0;
+        try {
+            while (batchSize < BATCH_ROWS) {
+                if (!readRecord()) {
+                    ended = true;
+                    break;
+                }
+                batch[batchSize] = toRow();
+                batchEnds[batchSize++] = windowOffset + position;
+            }
+        } catch (RuntimeException ex) {
+            ended = true;
+            if (batchSize == 0) {
+                throw ex;
+            }
+            failure = ex;
+        } finally {
+            if (splitRecorder != null) {
+                splitRecorder.end(begin, 0, batchSize);
+                if (ended) {
+                    splitRecorder.flush();
+                }
+            }
+        }
+    }
+
+    private boolean readRecord() {
+        while (true) {
+            int limit = window.limit();
+            if (position < limit) {
+                int next = tokenizer.tokenize(window, position, limit, lastWindow && !completeRecordsOnly);
+                if (next >= 0) {
+                    position = next;
+                    return true;
+                }
+                if (lastWindow) {
+                    return false;
+                }
+            } else if (lastWindow) {
+                return false;
+            }
+            moveWindow();
+        }
+    }
+
+    private CsvRow toRow() {
+        int fieldCount = tokenizer.fieldCount();
+        if (fieldCount != schema.size()) {
+            throw new ParseException("Rows size is different");
+        }
+        int length = 0;
+        for (int i = 0; i < fieldCount; i++) {
+            length += tokenizer.fieldEnd(i) - tokenizer.fieldStart(i);
+        }
+        byte[] data = new byte[length];
+        int[] offsets = new int[fieldCount + 1];
+        for (int i = 0; i < fieldCount; i++) {
+            offsets[i + 1] = offsets[i] + tokenizer.copyField(i, data, offsets[i]);
+        }
+        return new CsvRow(schema, data, offsets);
+    }
+
+    private void moveWindow() {
+        if (position == 0 && window.limit() > 0) {
+            windowLength = (int) Math.min(2L * windowLength, MAX_WINDOW_LENGTH);
+        }
+        windowOffset += position;
+        long begin = readRecorder != null ? readRecorder.begin() : 0;
+        try {
+            window = source.window(windowOffset, windowLength);
+        } catch (IOException ex) {
+            throw new ParseException(ex);
+        }
+        position = 0;
+        lastWindow = window.limit() < windowLength;
+        if (readRecorder != null) {
+            long end = windowOffset + window.limit();
+            long from = Math.max(mappedEnd, windowOffset);
+            for (long offset = from; offset < end; offset += PAGE_LENGTH) {
+                touched ^= window.get((int) (offset - windowOffset));
+            }
+            readRecorder.addBytesRead(Math.max(0, end - from));
+            mappedEnd = Math.max(mappedEnd, end);
+            readRecorder.end(begin, 0, 0);
+            readRecorder.flush();
+        }
+    }
+}
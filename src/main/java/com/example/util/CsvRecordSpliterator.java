@@ -0,0 +1,133 @@
+package com.example.util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Spliterator;
+import java.util.function.Consumer;
+
+/**
+ * Spliterator over rows of delimiter-separated content cut into byte ranges
+ * by {@link RecordBoundaries}.
+ *
+ * Each range is parsed by its own {@link CsvRecordReader}, so ranges are
+ * independent and the spliterator is split by halving the ranges that are not
+ * started yet. Rows keep the order of the content.
+ */
+class CsvRecordSpliterator implements Spliterator<CsvRow> {
+
+    private final ByteSource source;
+    private final char delimiter;
+    private final CsvSchema schema;
+    private final long[] boundaries;
+
+    private int range;
+    private final int end;
+    private CsvRecordReader reader;
+
+    /**
+     * Creates spliterator over given ranges.
+     *
+     * @param source The source of bytes, shared by all splits
+     * @param delimiter The single ASCII character delimiter
+     * @param schema The schema of the rows
+     * @param boundaries Ascending offsets of range starts followed by the end offset
+     */
+    CsvRecordSpliterator(ByteSource source, char delimiter, CsvSchema schema, long[] boundaries) {
+        this(source, delimiter, schema, boundaries, 0, boundaries.length - 1);
+    }
+
+    private CsvRecordSpliterator(ByteSource source, char delimiter, CsvSchema schema, long[] boundaries,
+                                 int range, int end) {
+        this.source = source;
+        this.delimiter = delimiter;
+        this.schema = schema;
+        this.boundaries = boundaries;
+        this.range = range;
+        this.end = end;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public boolean tryAdvance(Consumer<? super CsvRow> action) {
+        while (true) {
+            if (reader == null) {
+                if (range >= end) {
+                    return false;
+                }
+                reader = new CsvRecordReader(
+                        new RangeSource(source, boundaries[range], boundaries[range + 1]),
+                        new CsvTokenizer(delimiter),
+                        CsvRecordReader.DEFAULT_WINDOW_LENGTH,
+                        schema);
+            }
+            if (reader.hasNext()) {
+                action.accept(reader.next());
+                return true;
+            }
+            reader = null;
+            range++;
+        }
+    }
+
+    /**
+     * Splits off the first half of the ranges that are not started yet.
+     */
+    @Override
+    public Spliterator<CsvRow> trySplit() {
+        if (reader != null || end - range < 2) {
+            return null;
+        }
+        int middle = (range + end) >>> 1;
+        CsvRecordSpliterator prefix = new CsvRecordSpliterator(source, delimiter, schema, boundaries, range, middle);
+        range = middle;
+        return prefix;
+    }
+
+    /**
+     * Returns number of remaining bytes, which is proportional to the number
+     * of remaining rows.
+     */
+    @Override
+    public long estimateSize() {
+        return boundaries[end] - boundaries[range];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int characteristics() {
+        return ORDERED | NONNULL;
+    }
+
+    /**
+     * View of a byte range of the source, offsets are relative to the start
+     * of the range. Closing the view doesn't close the source.
+     */
+    private static class RangeSource implements ByteSource {
+        private final ByteSource source;
+        private final long from;
+        private final long to;
+
+        RangeSource(ByteSource source, long from, long to) {
+            this.source = source;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public ByteBuffer window(long offset, int length) throws IOException {
+            long available = Math.min(length, to - from - offset);
+            if (available <= 0) {
+                return ByteBuffer.allocate(0);
+            }
+            return source.window(from + offset, (int) available);
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -1,8 +1,10 @@
 package com.example.util;
 
-import lombok.ToString;
+import com.example.exceptions.ParseException;
 
-import java.util.HashMap;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.function.Function;
@@ -11,16 +13,57 @@ import static com.google.common.base.Preconditions.checkState;
 
 /**
  * Class representing parsed row of CSV file.
+ *
+ * Values are stored positionally as UTF-8 bytes of a single array with offsets
+ * of the cells, column names are resolved by the {@link CsvSchema} shared by all
+ * rows of a file. Strings are decoded only when requested.
  */
-@ToString
 public class CsvRow {
-    private final Map<String, String> row;
+    private final CsvSchema schema;
+    private final byte[] data;
+    private final int[] offsets;
 
     public CsvRow(Map<String, String> row) {
-        if (null == row) {
-            row = new HashMap<>();
+        List<String> names = new ArrayList<>();
+        List<byte[]> values = new ArrayList<>();
+        if (row != null) {
+            row.forEach((name, value) -> {
+                if (value != null) {
+                    names.add(name);
+                    values.add(value.getBytes(StandardCharsets.UTF_8));
+                }
+            });
         }
-        this.row = row;
+        this.schema = CsvSchema.of(names);
+        this.offsets = new int[values.size() + 1];
+        for (int i = 0; i < values.size(); i++) {
+            offsets[i + 1] = offsets[i] + values.get(i).length;
+        }
+        this.data = new byte[offsets[values.size()]];
+        for (int i = 0; i < values.size(); i++) {
+            System.arraycopy(values.get(i), 0, data, offsets[i], values.get(i).length);
+        }
+    }
+
+    /**
+     * Creates row with values stored in given array.
+     *
+     * @param schema The schema of the row
+     * @param data The UTF-8 bytes of all cells of the row
+     * @param offsets The offsets of cells in {@code data}, cell {@code i} occupies
+     *                range from {@code offsets[i]} to {@code offsets[i + 1]}
+     */
+    CsvRow(CsvSchema schema, byte[] data, int[] offsets) {
+        this.schema = schema;
+        this.data = data;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Returns schema of the row.
+     */
+    public CsvSchema getSchema() {
+        return schema;
     }
 
     /**
@@ -33,7 +76,8 @@ public class CsvRow {
      * @return Optional of value for given cell name
      */
     public Optional<String> get(String name) {
-        return Optional.ofNullable(row.get(name));
+        int index = schema.indexOf(name);
+        return index < 0 ? Optional.empty() : Optional.of(get(index));
     }
 
     /**
@@ -52,6 +96,65 @@ public class CsvRow {
         return get(name).map(converter);
     }
 
+    /**
+     * Returns value of the cell at given index of the schema.
+     *
+     * @param index The index of the cell
+     * @return Value of the cell
+     *
+     * @throws IndexOutOfBoundsException
+     *         If there is no cell with given index
+     */
+    public String get(int index) {
+        return new String(data, offsets[index], offsets[index + 1] - offsets[index], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns value of the cell at given index parsed as {@code long}.
+     *
+     * Value is parsed directly from the cell bytes without allocation.
+     *
+     * @param index The index of the cell
+     * @return Value of the cell
+     *
+     * @throws ParseException
+     *         If value of the cell is not a valid {@code long}
+     */
+    public long getLong(int index) {
+        return NumberParser.parseLong(data, offsets[index], offsets[index + 1]);
+    }
+
+    /**
+     * Returns value of the cell at given index parsed as {@code int}.
+     *
+     * Value is parsed directly from the cell bytes without allocation.
+     *
+     * @param index The index of the cell
+     * @return Value of the cell
+     *
+     * @throws ParseException
+     *         If value of the cell is not a valid {@code int}
+     */
+    public int getInt(int index) {
+        return NumberParser.parseInt(data, offsets[index], offsets[index + 1]);
+    }
+
+    /**
+     * Returns value of the cell at given index parsed as {@code double}.
+     *
+     * Plain decimal values are parsed directly from the cell bytes without
+     * allocation, results are the same as of {@link Double#parseDouble(String)}.
+     *
+     * @param index The index of the cell
+     * @return Value of the cell
+     *
+     * @throws ParseException
+     *         If value of the cell is not a valid {@code double}
+     */
+    public double getDouble(int index) {
+        return NumberParser.parseDouble(data, offsets[index], offsets[index + 1]);
+    }
+
     /**
      * {@inheritDoc}
      */
@@ -62,7 +165,16 @@ public class CsvRow {
 
         CsvRow csvRow = (CsvRow) o;
 
-        return row.equals(csvRow.row);
+        if (schema.size() != csvRow.schema.size()) {
+            return false;
+        }
+        for (int i = 0; i < schema.size(); i++) {
+            int other = csvRow.schema.indexOf(schema.name(i));
+            if (other < 0 || !cellEquals(i, csvRow, other)) {
+                return false;
+            }
+        }
+        return true;
     }
 
     /**
@@ -70,7 +182,7 @@ public class CsvRow {
      * {@code false} otherwise.
      */
     public boolean isEmpty() {
-        return row.isEmpty();
+        return schema.size() == 0;
     }
 
     /**
@@ -78,7 +190,38 @@ public class CsvRow {
      */
     @Override
     public int hashCode() {
-        return row.hashCode();
+        int hash = 0;
+        for (int i = 0; i < schema.size(); i++) {
+            hash += schema.name(i).hashCode() ^ get(i).hashCode();
+        }
+        return hash;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("CsvRow(row={");
+        for (int i = 0; i < schema.size(); i++) {
+            if (i > 0) {
+                sb.append(", ");
+            }
+            sb.append(schema.name(i)).append('=').append(get(i));
+        }
+        return sb.append("})").toString();
     }
 
+    private boolean cellEquals(int index, CsvRow other, int otherIndex) {
+        int length = offsets[index + 1] - offsets[index];
+        if (length != other.offsets[otherIndex + 1] - other.offsets[otherIndex]) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (data[offsets[index] + i] != other.data[other.offsets[otherIndex] + i]) {
+                return false;
+            }
+        }
+        return true;
+    }
 }
@@ -0,0 +1,103 @@
+package com.example.util;
+
+import com.example.exceptions.ParseException;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable schema of CSV content built once from its header.
+ *
+ * Maps column names to their positions, so rows can keep values positionally
+ * and callers can resolve column indices once instead of on every lookup.
+ */
+public final class CsvSchema {
+
+    private final List<String> names;
+    private final Map<String, Integer> indices;
+
+    private CsvSchema(List<String> names, Map<String, Integer> indices) {
+        this.names = names;
+        this.indices = indices;
+    }
+
+    /**
+     * Creates schema for given column names.
+     *
+     * @param names The column names in the order of the header
+     * @return Schema of the columns
+     *
+     * @throws ParseException
+     *         If some column name is present more than once
+     */
+    public static CsvSchema of(List<String> names) {
+        Map<String, Integer> indices = new HashMap<>();
+        for (int i = 0; i < names.size(); i++) {
+            if (indices.putIfAbsent(names.get(i), i) != null) {
+                throw new ParseException(String.format("Column '%s' is present more than once", names.get(i)));
+            }
+        }
+        return new CsvSchema(Collections.unmodifiableList(Arrays.asList(names.toArray(new String[0]))), indices);
+    }
+
+    /**
+     * Returns number of columns.
+     */
+    public int size() {
+        return names.size();
+    }
+
+    /**
+     * Returns name of the column at given index.
+     *
+     * @param index The index of the column
+     */
+    public String name(int index) {
+        return names.get(index);
+    }
+
+    /**
+     * Returns column names in the order of the header.
+     */
+    public List<String> names() {
+        return names;
+    }
+
+    /**
+     * Returns index of the column with given name or {@code -1} if column
+     * is not present.
+     *
+     * @param name The column name
+     */
+    public int indexOf(String name) {
+        Integer index = indices.get(name);
+        return index == null ? -1 : index;
+    }
+
+    /**
+     * Returns index of the column with given name.
+     *
+     * @param name The column name
+     *
+     * @throws ParseException
+     *         If column is not present
+     */
+    public int requireIndex(String name) {
+        int index = indexOf(name);
+        if (index < 0) {
+            throw new ParseException(String.format("Column '%s' is missing", name));
+        }
+        return index;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public String toString() {
+        return "CsvSchema" + names;
+    }
+}
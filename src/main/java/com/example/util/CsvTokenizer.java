@@ -0,0 +1,232 @@
+package com.example.util;
+
+import com.example.exceptions.ParseException;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Tokenizer of delimiter-separated UTF-8 records following RFC 4180 quoting rules.
+ *
+ * The tokenizer scans bytes of a record once and reports boundaries of its fields
+ * as offsets into the scanned buffer. Quoted fields may contain delimiters, line
+ * breaks and quotes escaped by doubling them. Unquoted fields are trimmed, content
+ * of quoted fields is kept as is. Strings are allocated only when a caller asks
+ * for one with {@link #field(int)}.
+ *
+ * Boundaries refer to the last tokenized record and stay valid until the next
+ * call of {@link #tokenize}. Not thread safe.
+ */
+public class CsvTokenizer {
+
+    private static final int INCOMPLETE = -1;
+    private static final byte QUOTE = '"';
+
+    private final byte delimiter;
+
+    private ByteBuffer buffer;
+    private int[] fields = new int[3 * 16];
+    private int fieldCount;
+    private boolean quotedEscaped;
+    private byte[] scratch = new byte[64];
+
+    /**
+     * Creates tokenizer for given delimiter.
+     *
+     * @param delimiter The single ASCII character delimiter, can't be a quote
+     *                  or a line break
+     */
+    public CsvTokenizer(char delimiter) {
+        if (delimiter >= 0x80 || delimiter == QUOTE || delimiter == '\n' || delimiter == '\r') {
+            throw new IllegalStateException("Delimiter should be a single ASCII character");
+        }
+        this.delimiter = (byte) delimiter;
+    }
+
+    /**
+     * Tokenizes the record starting at given offset of the buffer.
+     *
+     * Record ends with a line break outside of quotes or at {@code limit} if
+     * {@code endOfInput} is set.
+     *
+     * @param buffer The buffer containing UTF-8 bytes
+     * @param from The offset of the first byte of the record
+     * @param limit The offset right after the last byte available in the buffer
+     * @param endOfInput Whether there are no more bytes after {@code limit}
+     * @return Offset of the first byte after the record and its line break or
+     *         {@code -1} if the record is not complete within {@code limit}
+     *
+     * @throws ParseException
+     *         If quoted field is not terminated at the end of input or is followed
+     *         by something other than delimiter or line break
+     */
+    public int tokenize(ByteBuffer buffer, int from, int limit, boolean endOfInput) {
+        this.buffer = buffer;
+        fieldCount = 0;
+        int position = from;
+        while (true) {
+            int start = skipWhitespace(position, limit);
+            int end;
+            boolean escaped = false;
+            if (start < limit && buffer.get(start) == QUOTE) {
+                int closingQuote = scanQuoted(start, limit, endOfInput);
+                if (closingQuote == INCOMPLETE) {
+                    return INCOMPLETE;
+                }
+                escaped = quotedEscaped;
+                position = skipWhitespace(closingQuote + 1, limit);
+                if (position < limit && !isSeparator(buffer.get(position))) {
+                    throw new ParseException("Unexpected character after quoted field");
+                }
+                start++;
+                end = closingQuote;
+            } else {
+                position = start;
+                while (position < limit && !isSeparator(buffer.get(position))) {
+                    position++;
+                }
+                end = position;
+                while (end > start && isWhitespace(buffer.get(end - 1))) {
+                    end--;
+                }
+            }
+
+            if (position == limit && !endOfInput) {
+                return INCOMPLETE;
+            }
+            addField(start, end, escaped);
+            if (position < limit && buffer.get(position) == delimiter) {
+                position++;
+                continue;
+            }
+            return position == limit ? limit : position + 1;
+        }
+    }
+
+    /**
+     * Returns number of fields in the last tokenized record.
+     */
+    public int fieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Returns offset of the first byte of the field content in the buffer.
+     * Enclosing quotes are not part of the content.
+     *
+     * @param index The index of the field in the record
+     */
+    public int fieldStart(int index) {
+        return fields[3 * index];
+    }
+
+    /**
+     * Returns offset right after the last byte of the field content in the buffer.
+     *
+     * @param index The index of the field in the record
+     */
+    public int fieldEnd(int index) {
+        return fields[3 * index + 1];
+    }
+
+    /**
+     * Returns {@code true} if content of the field contains escaped quotes, so
+     * it has to be unescaped before use.
+     *
+     * @param index The index of the field in the record
+     */
+    public boolean isEscaped(int index) {
+        return fields[3 * index + 2] != 0;
+    }
+
+    /**
+     * Copies unescaped content of the field to the target array.
+     *
+     * @param index The index of the field in the record
+     * @param target The target array, should have at least field length bytes
+     *               available after {@code offset}
+     * @param offset The offset in the target array
+     * @return Number of copied bytes
+     */
+    public int copyField(int index, byte[] target, int offset) {
+        int start = fieldStart(index);
+        int end = fieldEnd(index);
+        boolean escaped = isEscaped(index);
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte b = buffer.get(i);
+            target[offset + length++] = b;
+            if (escaped && b == QUOTE) {
+                i++;
+            }
+        }
+        return length;
+    }
+
+    /**
+     * Returns unescaped content of the field decoded as a String.
+     *
+     * @param index The index of the field in the record
+     */
+    public String field(int index) {
+        int length = fieldEnd(index) - fieldStart(index);
+        if (scratch.length < length) {
+            scratch = new byte[Math.max(length, 2 * scratch.length)];
+        }
+        return new String(scratch, 0, copyField(index, scratch, 0), StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Returns offset of the closing quote of the field opened at given offset or
+     * {@code -1} if it is not within {@code limit}.
+     */
+    private int scanQuoted(int quote, int limit, boolean endOfInput) {
+        quotedEscaped = false;
+        int position = quote + 1;
+        while (true) {
+            while (position < limit && buffer.get(position) != QUOTE) {
+                position++;
+            }
+            if (position == limit || (position + 1 == limit && !endOfInput)) {
+                if (endOfInput) {
+                    throw new ParseException("Quoted field is not terminated");
+                }
+                return INCOMPLETE;
+            }
+            if (position + 1 < limit && buffer.get(position + 1) == QUOTE) {
+                quotedEscaped = true;
+                position += 2;
+                continue;
+            }
+            return position;
+        }
+    }
+
+    private int skipWhitespace(int position, int limit) {
+        while (position < limit && isWhitespace(buffer.get(position))) {
+            position++;
+        }
+        return position;
+    }
+
+    private void addField(int start, int end, boolean escaped) {
+        int base = 3 * fieldCount;
+        if (base + 3 > fields.length) {
+            int[] extended = new int[2 * fields.length];
+            System.arraycopy(fields, 0, extended, 0, fields.length);
+            fields = extended;
+        }
+        fields[base] = start;
+        fields[base + 1] = end;
+        fields[base + 2] = escaped ? 1 : 0;
+        fieldCount++;
+    }
+
+    private boolean isSeparator(byte b) {
+        return b == delimiter || b == '\n';
+    }
+
+    private boolean isWhitespace(byte b) {
+        return b >= 0 && b <= ' ' && b != '\n' && b != delimiter;
+    }
+}
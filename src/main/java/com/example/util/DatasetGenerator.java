@@ -0,0 +1,347 @@
+package com.example.util;
+
+import com.example.exceptions.FileWriteException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Generator of synthetic products, currencies and matchings files of any size.
+ *
+ * Output depends only on the parameters and the seed. Products are generated
+ * in fixed blocks of rows, every block from its own random generator derived
+ * from the seed and the block index, so blocks are encoded in parallel and
+ * written in order and the files are the same for any number of threads.
+ * Memory is bounded by a few blocks per thread.
+ *
+ * Products get sequential ids, prices with two fraction digits and quantities
+ * from {@code 1} to {@code 10}. Matchings and currencies of products follow
+ * configured {@link Skew}.
+ *
+ * Run as a tool with the output directory as the argument, parameters are read
+ * from {@code generator.*} system properties, see {@link #main(String[])}.
+ */
+public class DatasetGenerator {
+    private static final Logger logger = LoggerFactory.getLogger(DatasetGenerator.class);
+
+    static final int BLOCK_ROWS = 64 * 1024;
+
+    private static final int MAX_ROW_LENGTH = 4 * NumberFormatter.MAX_LONG_LENGTH + 16;
+    private static final int MAX_PRICE_CENTS = 1_000_000;
+    private static final int MAX_QUANTITY = 10;
+    private static final double GIANT_SHARE = 0.5;
+    private static final double ZIPF_EXPONENT = 1.0;
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Distribution of products over matchings or currencies.
+     */
+    public enum Skew {
+        /** Every value is equally likely. */
+        UNIFORM,
+        /** Value of rank {@code k} is picked with probability proportional to {@code 1 / k}. */
+        ZIPF,
+        /** Half of products get the first value, the rest are spread uniformly. */
+        GIANT
+    }
+
+    private final long seed;
+    private final long productCount;
+    private final int matchingCount;
+    private final int currencyCount;
+
+    private long topPricedCount = 3;
+    private Skew matchingSkew = Skew.UNIFORM;
+    private Skew currencySkew = Skew.UNIFORM;
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Creates generator of uniformly spread products.
+     *
+     * @param seed The seed of the random generators
+     * @param productCount The number of products
+     * @param matchingCount The number of matchings
+     * @param currencyCount The number of currencies
+     */
+    public DatasetGenerator(long seed, long productCount, int matchingCount, int currencyCount) {
+        checkState(productCount >= 0, "Product count should be greater or equal to zero");
+        checkState(matchingCount > 0, "Matching count should be greater than zero");
+        checkState(currencyCount > 0, "Currency count should be greater than zero");
+        this.seed = seed;
+        this.productCount = productCount;
+        this.matchingCount = matchingCount;
+        this.currencyCount = currencyCount;
+    }
+
+    /**
+     * Sets {@code top_priced_count} of every matching, {@code 3} by default.
+     */
+    public DatasetGenerator topPricedCount(long topPricedCount) {
+        checkState(topPricedCount >= 0, "Top priced count should be greater or equal to zero");
+        this.topPricedCount = topPricedCount;
+        return this;
+    }
+
+    /**
+     * Sets distribution of products over matchings, uniform by default.
+     */
+    public DatasetGenerator matchingSkew(Skew matchingSkew) {
+        this.matchingSkew = matchingSkew;
+        return this;
+    }
+
+    /**
+     * Sets distribution of products over currencies, uniform by default.
+     */
+    public DatasetGenerator currencySkew(Skew currencySkew) {
+        this.currencySkew = currencySkew;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads encoding products, the number of processors
+     * by default. Output doesn't depend on it.
+     */
+    public DatasetGenerator threads(int threads) {
+        checkState(threads > 0, "Threads count should be greater than zero");
+        this.threads = threads;
+        return this;
+    }
+
+    /**
+     * Writes {@code data.csv}, {@code currencies.csv} and {@code matchings.csv}
+     * to given directory, replacing existing files.
+     *
+     * @param directory The output directory, created if missing
+     *
+     * @throws FileWriteException If files can't be written
+     */
+    public void generate(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            writeCurrencies(directory.resolve("currencies.csv"));
+            writeMatchings(directory.resolve("matchings.csv"));
+            writeProducts(directory.resolve("data.csv"));
+        } catch (IOException ex) {
+            throw new FileWriteException(ex);
+        }
+    }
+
+    /**
+     * Generates files into the directory given as the first argument, the
+     * current directory by default. Parameters are read from system properties:
+     * {@code generator.seed}, {@code generator.products},
+     * {@code generator.matchings}, {@code generator.currencies},
+     * {@code generator.topPricedCount}, {@code generator.matchingSkew},
+     * {@code generator.currencySkew} and {@code generator.threads}.
+     */
+    public static void main(String[] args) {
+        DatasetGenerator generator = new DatasetGenerator(
+                Long.getLong("generator.seed", 42),
+                Long.getLong("generator.products", 1_000_000),
+                Integer.getInteger("generator.matchings", 1_000),
+                Integer.getInteger("generator.currencies", 10))
+                .topPricedCount(Long.getLong("generator.topPricedCount", 3))
+                .matchingSkew(Skew.valueOf(System.getProperty("generator.matchingSkew", "UNIFORM")))
+                .currencySkew(Skew.valueOf(System.getProperty("generator.currencySkew", "UNIFORM")))
+                .threads(Integer.getInteger("generator.threads", Runtime.getRuntime().availableProcessors()));
+        generator.generate(Paths.get(args.length > 0 ? args[0] : "."));
+    }
+
+    private void writeCurrencies(Path file) throws IOException {
+        SplittableRandom random = new SplittableRandom(seed);
+        try (FileChannel channel = open(file);
+             ChannelOutput output = new ChannelOutput(channel, 64 * 1024)) {
+            output.put("currency,ratio\n");
+            for (int i = 0; i < currencyCount; i++) {
+                output.put(currency(i)).put((byte) ',');
+                putCents(output, 1 + random.nextInt(500));
+                output.put((byte) '\n');
+            }
+        }
+    }
+
+    private void writeMatchings(Path file) throws IOException {
+        try (FileChannel channel = open(file);
+             ChannelOutput output = new ChannelOutput(channel, 64 * 1024)) {
+            output.put("matching_id,top_priced_count\n");
+            for (int i = 1; i <= matchingCount; i++) {
+                output.putLong(i).put((byte) ',').putLong(topPricedCount).put((byte) '\n');
+            }
+        }
+    }
+
+    private void writeProducts(Path file) throws IOException {
+        Distribution matchings = Distribution.of(matchingSkew, matchingCount);
+        Distribution currencies = Distribution.of(currencySkew, currencyCount);
+        byte[][] currencyNames = new byte[currencyCount][];
+        for (int i = 0; i < currencyCount; i++) {
+            currencyNames[i] = currency(i).getBytes(StandardCharsets.US_ASCII);
+        }
+        long blocks = (productCount + BLOCK_ROWS - 1) / BLOCK_ROWS;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        try (FileChannel channel = open(file)) {
+            channel.write(ByteBuffer.wrap(
+                    "id,price,currency,quantity,matching_id\n".getBytes(StandardCharsets.US_ASCII)));
+            Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+            long next = 0;
+            while (next < blocks || !pending.isEmpty()) {
+                while (next < blocks && pending.size() < 2 * threads) {
+                    long block = next++;
+                    pending.add(executor.submit(() -> encodeBlock(block, matchings, currencies, currencyNames)));
+                }
+                ByteBuffer buffer = pending.poll().get();
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new FileWriteException(ex);
+        } catch (ExecutionException ex) {
+            throw new FileWriteException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        logger.debug("Generated {} products into '{}'", productCount, file);
+    }
+
+    private ByteBuffer encodeBlock(long block, Distribution matchings, Distribution currencies,
+                                   byte[][] currencyNames) {
+        SplittableRandom random = new SplittableRandom(seed + (block + 1) * GOLDEN_GAMMA);
+        long from = block * BLOCK_ROWS;
+        int rows = (int) Math.min(BLOCK_ROWS, productCount - from);
+        ByteBuffer buffer = ByteBuffer.allocate(rows * MAX_ROW_LENGTH);
+        for (int row = 0; row < rows; row++) {
+            NumberFormatter.putLong(from + row + 1, buffer);
+            buffer.put((byte) ',');
+            int cents = 1 + random.nextInt(MAX_PRICE_CENTS);
+            NumberFormatter.putLong(cents / 100, buffer);
+            buffer.put((byte) '.').put((byte) ('0' + cents / 10 % 10)).put((byte) ('0' + cents % 10));
+            buffer.put((byte) ',').put(currencyNames[currencies.sample(random)]).put((byte) ',');
+            NumberFormatter.putLong(1 + random.nextInt(MAX_QUANTITY), buffer);
+            buffer.put((byte) ',');
+            NumberFormatter.putLong(1 + matchings.sample(random), buffer);
+            buffer.put((byte) '\n');
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    private static void putCents(ChannelOutput output, int cents) throws IOException {
+        output.putLong(cents / 100).put((byte) '.')
+                .put((byte) ('0' + cents / 10 % 10)).put((byte) ('0' + cents % 10));
+    }
+
+    /**
+     * Returns code of the currency with given index: {@code AAA}, {@code AAB}
+     * and so on, with more letters once three are exhausted.
+     */
+    static String currency(int index) {
+        char[] letters = new char[8];
+        int position = letters.length;
+        int value = index;
+        do {
+            letters[--position] = (char) ('A' + value % 26);
+            value /= 26;
+        } while (value > 0 || letters.length - position < 3);
+        return new String(letters, position, letters.length - position);
+    }
+
+    private static FileChannel open(Path file) throws IOException {
+        return FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Distribution of values {@code [0, n)} sampled in constant time with
+     * Vose's alias method.
+     */
+    private static final class Distribution {
+        private final Skew skew;
+        private final int size;
+        private final double[] probabilities;
+        private final int[] aliases;
+
+        private Distribution(Skew skew, int size, double[] probabilities, int[] aliases) {
+            this.skew = skew;
+            this.size = size;
+            this.probabilities = probabilities;
+            this.aliases = aliases;
+        }
+
+        static Distribution of(Skew skew, int size) {
+            if (skew != Skew.ZIPF) {
+                return new Distribution(skew, size, null, null);
+            }
+            double[] weights = new double[size];
+            double total = 0;
+            for (int i = 0; i < size; i++) {
+                weights[i] = 1 / Math.pow(i + 1, ZIPF_EXPONENT);
+                total += weights[i];
+            }
+            double[] probabilities = new double[size];
+            int[] aliases = new int[size];
+            int[] small = new int[size];
+            int[] large = new int[size];
+            int smallCount = 0;
+            int largeCount = 0;
+            for (int i = 0; i < size; i++) {
+                weights[i] = weights[i] * size / total;
+                if (weights[i] < 1) {
+                    small[smallCount++] = i;
+                } else {
+                    large[largeCount++] = i;
+                }
+            }
+            while (smallCount > 0 && largeCount > 0) {
+                int less = small[--smallCount];
+                int more = large[--largeCount];
+                probabilities[less] = weights[less];
+                aliases[less] = more;
+                weights[more] = weights[more] + weights[less] - 1;
+                if (weights[more] < 1) {
+                    small[smallCount++] = more;
+                } else {
+                    large[largeCount++] = more;
+                }
+            }
+            while (largeCount > 0) {
+                probabilities[large[--largeCount]] = 1;
+            }
+            while (smallCount > 0) {
+                probabilities[small[--smallCount]] = 1;
+            }
+            return new Distribution(skew, size, probabilities, aliases);
+        }
+
+        int sample(SplittableRandom random) {
+            switch (skew) {
+                case ZIPF:
+                    int column = random.nextInt(size);
+                    return random.nextDouble() < probabilities[column] ? column : aliases[column];
+                case GIANT:
+                    return random.nextDouble() < GIANT_SHARE ? 0 : random.nextInt(size);
+                default:
+                    return random.nextInt(size);
+            }
+        }
+    }
+}
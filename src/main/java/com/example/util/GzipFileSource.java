@@ -0,0 +1,361 @@
+package com.example.util;
+
+import com.example.exceptions.FileNotFoundException;
+
+import java.io.BufferedInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.CRC32;
+import java.util.zip.DataFormatException;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.Inflater;
+import java.util.zip.ZipException;
+
+import static com.google.common.base.Preconditions.checkState;
+
+/**
+ * Byte source of the decompressed content of a gzip file on the filesystem.
+ *
+ * Content is decompressed by a background thread into a bounded queue of
+ * chunks while the previous chunks are parsed, so decompression overlaps with
+ * parsing. Files made of BGZF blocks, which are gzip members that carry their
+ * compressed size in the header, are cut into members without decompressing
+ * them and members are decompressed in parallel, keeping the order of the file.
+ * Other files, including concatenated members without sizes, are decompressed
+ * sequentially, and so is the rest of a file from the first member that
+ * doesn't look like a BGZF block.
+ *
+ * Decompressed content can't be read backwards, so windows have to be requested
+ * at non-decreasing offsets. Bytes before the offset of the last window are
+ * dropped, the window buffer is reused by the next window.
+ */
+public class GzipFileSource implements ByteSource {
+
+    private static final String SUFFIX = ".gz";
+    private static final int CHUNK_LENGTH = 1024 * 1024;
+    private static final int QUEUED_CHUNKS = 16;
+    private static final ByteBuffer END = ByteBuffer.allocate(0);
+
+    private static final int HEADER_LENGTH = 12;
+    private static final int TRAILER_LENGTH = 8;
+    private static final int FLAG_EXTRA = 4;
+    private static final int MAX_BLOCK_CONTENT_LENGTH = 64 * 1024;
+
+    private final FileChannel channel;
+    private final int threads;
+    private final BlockingQueue<ByteBuffer> chunks = new ArrayBlockingQueue<>(QUEUED_CHUNKS);
+    private final Thread decompressor;
+    private volatile Throwable failure;
+
+    private byte[] data = new byte[0];
+    private long dataOffset;
+    private int dataLength;
+    private ByteBuffer chunk;
+    private boolean ended;
+
+    /**
+     * Opens the file and starts decompression, BGZF blocks are decompressed
+     * by as many threads as there are available processors.
+     *
+     * @param path The path of the gzip file
+     *
+     * @throws FileNotFoundException
+     *         If {@code path} is {@code null} or file can't be opened
+     */
+    public GzipFileSource(Path path) {
+        this(path, Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Opens the file and starts decompression.
+     *
+     * @param path The path of the gzip file
+     * @param threads The number of threads decompressing BGZF blocks
+     *
+     * @throws FileNotFoundException
+     *         If {@code path} is {@code null} or file can't be opened
+     */
+    public GzipFileSource(Path path, int threads) {
+        checkState(threads > 0, "Threads count should be greater than zero");
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+        } catch (Exception ex) {
+            throw new FileNotFoundException(ex.getMessage());
+        }
+        this.threads = threads;
+        decompressor = new Thread(this::decompress, "gzip-" + path.getFileName());
+        decompressor.setDaemon(true);
+        decompressor.start();
+    }
+
+    /**
+     * Returns whether the file is gzip compressed, judging by its name.
+     *
+     * @param path The path of the file
+     */
+    public static boolean isGzip(Path path) {
+        return path.getFileName() != null && path.getFileName().toString().endsWith(SUFFIX);
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * @throws IOException
+     *         If {@code offset} is before the offset of the previous window,
+     *         or decompression failed
+     */
+    @Override
+    public ByteBuffer window(long offset, int length) throws IOException {
+        if (offset < dataOffset) {
+            throw new IOException(String.format("Offset %d was already dropped, gzip content is read forward only",
+                    offset));
+        }
+        int dropped = (int) Math.min(dataLength, offset - dataOffset);
+        System.arraycopy(data, dropped, data, 0, dataLength - dropped);
+        dataLength -= dropped;
+        dataOffset += dropped;
+        while (dataOffset < offset && nextChunk() != null) {
+            int skipped = (int) Math.min(chunk.remaining(), offset - dataOffset);
+            chunk.position(chunk.position() + skipped);
+            dataOffset += skipped;
+        }
+        if (data.length < length) {
+            data = Arrays.copyOf(data, length);
+        }
+        while (dataLength < length && nextChunk() != null) {
+            int copied = Math.min(chunk.remaining(), length - dataLength);
+            chunk.get(data, dataLength, copied);
+            dataLength += copied;
+        }
+        return ByteBuffer.wrap(data, 0, Math.min(dataLength, length));
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        decompressor.interrupt();
+        chunks.clear();
+        channel.close();
+    }
+
+    /**
+     * Returns chunk with remaining bytes, or {@code null} once the content ended.
+     */
+    private ByteBuffer nextChunk() throws IOException {
+        while (!ended && (chunk == null || !chunk.hasRemaining())) {
+            try {
+                chunk = chunks.take();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for decompressed content");
+            }
+            if (chunk == END) {
+                ended = true;
+                chunk = null;
+                if (failure != null) {
+                    throw new IOException("Can't decompress gzip content", failure);
+                }
+            }
+        }
+        return chunk;
+    }
+
+    private void decompress() {
+        try {
+            long offset = blockSize(0) > 0 ? decompressBlocks() : 0;
+            if (offset == 0 || offset < channel.size()) {
+                decompressStream(offset);
+            }
+        } catch (InterruptedException | InterruptedIOException ex) {
+            return;
+        } catch (Throwable ex) {
+            failure = ex;
+        }
+        try {
+            chunks.put(END);
+        } catch (InterruptedException ignored) {
+            // the source is closed, nobody waits for the end
+        }
+    }
+
+    /**
+     * Decompresses members from given offset to the end of the file one by one.
+     */
+    private void decompressStream(long offset) throws IOException, InterruptedException {
+        channel.position(offset);
+        InputStream input = new GZIPInputStream(
+                new BufferedInputStream(Channels.newInputStream(channel), CHUNK_LENGTH), CHUNK_LENGTH);
+        while (true) {
+            byte[] buffer = new byte[CHUNK_LENGTH];
+            int length = 0;
+            int read;
+            while (length < buffer.length && (read = input.read(buffer, length, buffer.length - length)) > 0) {
+                length += read;
+            }
+            if (length == 0) {
+                return;
+            }
+            chunks.put(ByteBuffer.wrap(buffer, 0, length));
+        }
+    }
+
+    /**
+     * Reads members one by one and decompresses them on a pool, a sliding
+     * window of pending members keeps all threads busy while bounding memory.
+     *
+     * @return Offset of the first member that is not a BGZF block, or size of
+     *         the file if all of them are
+     */
+    private long decompressBlocks() throws IOException, InterruptedException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, decompressor.getName() + "-inflater");
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            Deque<Future<ByteBuffer>> pending = new ArrayDeque<>();
+            long offset = 0;
+            long size = channel.size();
+            boolean blocks = true;
+            while ((blocks && offset < size) || !pending.isEmpty()) {
+                while (blocks && offset < size && pending.size() < 4 * threads) {
+                    int blockSize = blockSize(offset);
+                    if (blockSize == 0) {
+                        blocks = false;
+                        break;
+                    }
+                    byte[] member = read(offset, blockSize);
+                    offset += member.length;
+                    pending.add(executor.submit(() -> inflate(member)));
+                }
+                if (pending.isEmpty()) {
+                    break;
+                }
+                ByteBuffer block = pending.poll().get();
+                if (block.hasRemaining()) {
+                    chunks.put(block);
+                }
+            }
+            return offset;
+        } catch (ExecutionException ex) {
+            throw new IOException(ex.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns size of the BGZF block at given offset, or {@code 0} if gzip
+     * member at the offset is not a BGZF block: it has to have the extra field
+     * as its only optional field, carry its size in the BGZF subfield of the
+     * extra field and hold at most 64 KiB of content.
+     */
+    private int blockSize(long offset) throws IOException {
+        ByteBuffer header = ByteBuffer.wrap(read(offset, HEADER_LENGTH, false)).order(ByteOrder.LITTLE_ENDIAN);
+        if (header.limit() < HEADER_LENGTH
+                || header.getShort(0) != (short) 0x8b1f
+                || header.get(2) != 8
+                || header.get(3) != FLAG_EXTRA) {
+            return 0;
+        }
+        int extraLength = header.getShort(10) & 0xffff;
+        ByteBuffer extra = ByteBuffer.wrap(read(offset + HEADER_LENGTH, extraLength, false))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        while (extra.remaining() >= 4) {
+            byte first = extra.get();
+            byte second = extra.get();
+            int length = extra.getShort() & 0xffff;
+            if (first == 'B' && second == 'C' && length == 2 && extra.remaining() >= 2) {
+                int blockSize = (extra.getShort() & 0xffff) + 1;
+                return hasBlockContentLength(offset, blockSize, extraLength) ? blockSize : 0;
+            }
+            extra.position(Math.min(extra.limit(), extra.position() + length));
+        }
+        return 0;
+    }
+
+    /**
+     * Returns whether the block is large enough for its header and trailer and
+     * its trailer declares content length of a BGZF block.
+     */
+    private boolean hasBlockContentLength(long offset, int blockSize, int extraLength) throws IOException {
+        if (blockSize < HEADER_LENGTH + extraLength + TRAILER_LENGTH) {
+            return false;
+        }
+        ByteBuffer length = ByteBuffer.wrap(read(offset + blockSize - 4, 4, false)).order(ByteOrder.LITTLE_ENDIAN);
+        return length.limit() == 4 && (length.getInt(0) & 0xffffffffL) <= MAX_BLOCK_CONTENT_LENGTH;
+    }
+
+    private byte[] read(long offset, int length) throws IOException {
+        return read(offset, length, true);
+    }
+
+    private byte[] read(long offset, int length, boolean fully) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, offset + buffer.position()) < 0) {
+                if (fully) {
+                    throw new EOFException(String.format("Gzip member at offset %d is truncated", offset));
+                }
+                return Arrays.copyOf(buffer.array(), buffer.position());
+            }
+        }
+        return buffer.array();
+    }
+
+    /**
+     * Decompresses a single BGZF block and verifies its checksum and size.
+     */
+    private static ByteBuffer inflate(byte[] member) throws ZipException {
+        ByteBuffer trailer = ByteBuffer.wrap(member, member.length - TRAILER_LENGTH, TRAILER_LENGTH)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        long checksum = trailer.getInt() & 0xffffffffL;
+        int size = trailer.getInt();
+        int from = HEADER_LENGTH + ((member[10] & 0xff) | (member[11] & 0xff) << 8);
+        byte[] output = new byte[size];
+        Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(member, from, member.length - TRAILER_LENGTH - from);
+            int length = 0;
+            while (length < size && !inflater.finished()) {
+                int inflated = inflater.inflate(output, length, size - length);
+                if (inflated == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    break;
+                }
+                length += inflated;
+            }
+            if (length != size) {
+                throw new ZipException("BGZF block size mismatch");
+            }
+        } catch (DataFormatException ex) {
+            throw new ZipException(ex.getMessage());
+        } finally {
+            inflater.end();
+        }
+        CRC32 crc = new CRC32();
+        crc.update(output);
+        if (crc.getValue() != checksum) {
+            throw new ZipException("BGZF block checksum mismatch");
+        }
+        return ByteBuffer.wrap(output);
+    }
+}
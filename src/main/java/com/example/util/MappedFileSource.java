@@ -0,0 +1,62 @@
+package com.example.util;
+
+import com.example.exceptions.FileNotFoundException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Byte source backed by a file on the filesystem.
+ *
+ * Windows are mapped with {@link FileChannel#map}, so the bytes are read by the
+ * page cache on demand and are never copied through the heap.
+ */
+public class MappedFileSource implements ByteSource {
+
+    private final FileChannel channel;
+    private final long size;
+
+    /**
+     * Opens the file for reading.
+     *
+     * @param path The path of the file
+     *
+     * @throws FileNotFoundException
+     *         If {@code path} is {@code null} or file can't be opened
+     */
+    public MappedFileSource(Path path) {
+        try {
+            channel = FileChannel.open(path, StandardOpenOption.READ);
+            size = channel.size();
+        } catch (Exception ex) {
+            throw new FileNotFoundException(ex.getMessage());
+        }
+    }
+
+    /**
+     * Returns size of the file in bytes.
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public ByteBuffer window(long offset, int length) throws IOException {
+        long available = Math.max(0, Math.min(length, size - offset));
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, available);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,134 @@
+package com.example.util;
+
+import java.nio.ByteBuffer;
+import java.text.DecimalFormatSymbols;
+import java.util.Locale;
+
+/**
+ * Formatter of decimal numbers into ASCII bytes.
+ *
+ * Numbers are written directly into a byte buffer without creating
+ * intermediate Strings or formatters. Output is the same as the one of
+ * {@link Long#toString(long)} and {@code String.format("%.3f", value)}.
+ */
+final class NumberFormatter {
+
+    /**
+     * Maximum number of bytes written by {@link #putLong(long, ByteBuffer)}.
+     */
+    static final int MAX_LONG_LENGTH = 20;
+
+    /**
+     * Maximum number of bytes written by {@link #putFixed3(double, ByteBuffer)}.
+     */
+    static final int MAX_FIXED3_LENGTH = 14;
+
+    private static final double MAX_FIXED3_VALUE = 1e9;
+    private static final double ROUNDING_MARGIN = 1e-3;
+    private static final int MAX_LONG_DIGITS = 19;
+    private static final byte[] MIN_LONG = {
+            '-', '9', '2', '2', '3', '3', '7', '2', '0', '3', '6', '8', '5', '4', '7', '7', '5', '8', '0', '8'
+    };
+
+    private static volatile FormatLocale formatLocale = new FormatLocale(null, false);
+
+    private NumberFormatter() {
+    }
+
+    /**
+     * Writes decimal representation of the value at the position of the buffer,
+     * the same as {@link Long#toString(long)}.
+     *
+     * @param value The value
+     * @param buffer The buffer with at least {@link #MAX_LONG_LENGTH} bytes remaining
+     */
+    static void putLong(long value, ByteBuffer buffer) {
+        if (value == Long.MIN_VALUE) {
+            buffer.put(MIN_LONG);
+            return;
+        }
+        if (value < 0) {
+            buffer.put((byte) '-');
+            value = -value;
+        }
+        putDigits(value, digits(value), buffer);
+    }
+
+    /**
+     * Writes the value rounded to 3 fraction digits at the position of the buffer,
+     * the same as {@code String.format("%.3f", value)}.
+     *
+     * Only non-negative values below {@code 1e9} that are not too close to a half
+     * of the last digit are written, and only if default format locale uses
+     * ASCII digits and a dot as decimal separator. Otherwise nothing is written
+     * and the caller should fall back to {@code String.format}.
+     *
+     * @param value The value
+     * @param buffer The buffer with at least {@link #MAX_FIXED3_LENGTH} bytes remaining
+     * @return {@code true} if the value was written
+     */
+    static boolean putFixed3(double value, ByteBuffer buffer) {
+        if (!(value >= 0 && value < MAX_FIXED3_VALUE) || Double.doubleToRawLongBits(value) < 0) {
+            return false;
+        }
+        double scaled = value * 1000;
+        double floor = Math.floor(scaled);
+        if (Math.abs(scaled - floor - 0.5) < ROUNDING_MARGIN || !isPlainLocale()) {
+            return false;
+        }
+        long rounded = (long) floor + (scaled - floor > 0.5 ? 1 : 0);
+        long integer = rounded / 1000;
+        putDigits(integer, digits(integer), buffer);
+        buffer.put((byte) '.');
+        putDigits(rounded % 1000, 3, buffer);
+        return true;
+    }
+
+    /**
+     * Returns number of decimal digits of the non-negative value.
+     */
+    private static int digits(long value) {
+        int digits = 1;
+        for (long bound = 10; digits < MAX_LONG_DIGITS && value >= bound; bound *= 10) {
+            digits++;
+        }
+        return digits;
+    }
+
+    /**
+     * Writes given number of lowest decimal digits of the non-negative value,
+     * padded with zeros.
+     */
+    private static void putDigits(long value, int digits, ByteBuffer buffer) {
+        int end = buffer.position() + digits;
+        for (int i = end - 1; i >= buffer.position(); i--) {
+            buffer.put(i, (byte) ('0' + value % 10));
+            value /= 10;
+        }
+        buffer.position(end);
+    }
+
+    private static boolean isPlainLocale() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        FormatLocale checked = formatLocale;
+        if (checked.locale != locale) {
+            DecimalFormatSymbols symbols = DecimalFormatSymbols.getInstance(locale);
+            checked = new FormatLocale(locale, symbols.getZeroDigit() == '0' && symbols.getDecimalSeparator() == '.');
+            formatLocale = checked;
+        }
+        return checked.plain;
+    }
+
+    /**
+     * Default format locale with the result of its check.
+     */
+    private static class FormatLocale {
+        final Locale locale;
+        final boolean plain;
+
+        FormatLocale(Locale locale, boolean plain) {
+            this.locale = locale;
+            this.plain = plain;
+        }
+    }
+}
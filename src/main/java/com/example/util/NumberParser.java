@@ -0,0 +1,172 @@
+package com.example.util;
+
+import com.example.exceptions.ParseException;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Parser of decimal numbers written as ASCII bytes.
+ *
+ * Numbers are parsed directly from the bytes without creating intermediate
+ * Strings or boxed values. Valid input never goes through exception handling,
+ * {@link ParseException} is created only when the input is malformed.
+ */
+final class NumberParser {
+
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final long MAX_EXACT_MANTISSA = 1L << 53;
+    private static final int MAX_MANTISSA_DIGITS = 18;
+
+    private NumberParser() {
+    }
+
+    /**
+     * Parses {@code long} value the same way as {@link Long#parseLong(String)}.
+     *
+     * @param data The bytes containing the number
+     * @param from The offset of the first byte
+     * @param to The offset right after the last byte
+     * @return Parsed value
+     *
+     * @throws ParseException If bytes do not represent a {@code long} value
+     */
+    static long parseLong(byte[] data, int from, int to) {
+        int position = from;
+        boolean negative = false;
+        if (position < to && (data[position] == '-' || data[position] == '+')) {
+            negative = data[position] == '-';
+            position++;
+        }
+        if (position == to) {
+            throw malformed(data, from, to);
+        }
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long multiplicationLimit = limit / 10;
+        long result = 0;
+        for (; position < to; position++) {
+            int digit = data[position] - '0';
+            if (digit < 0 || digit > 9 || result < multiplicationLimit) {
+                throw malformed(data, from, to);
+            }
+            result *= 10;
+            if (result < limit + digit) {
+                throw malformed(data, from, to);
+            }
+            result -= digit;
+        }
+        return negative ? result : -result;
+    }
+
+    /**
+     * Parses {@code int} value the same way as {@link Integer#parseInt(String)}.
+     *
+     * @param data The bytes containing the number
+     * @param from The offset of the first byte
+     * @param to The offset right after the last byte
+     * @return Parsed value
+     *
+     * @throws ParseException If bytes do not represent an {@code int} value
+     */
+    static int parseInt(byte[] data, int from, int to) {
+        long value = parseLong(data, from, to);
+        if (value < Integer.MIN_VALUE || value > Integer.MAX_VALUE) {
+            throw malformed(data, from, to);
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses {@code double} value the same way as {@link Double#parseDouble(String)}.
+     *
+     * Plain decimal notation with up to 18 significant digits and a small exponent
+     * is converted exactly with a single floating point operation. Other input is
+     * delegated to {@link Double#parseDouble(String)}.
+     *
+     * @param data The bytes containing the number
+     * @param from The offset of the first byte
+     * @param to The offset right after the last byte
+     * @return Parsed value
+     *
+     * @throws ParseException If bytes do not represent a {@code double} value
+     */
+    static double parseDouble(byte[] data, int from, int to) {
+        int position = from;
+        boolean negative = false;
+        if (position < to && (data[position] == '-' || data[position] == '+')) {
+            negative = data[position] == '-';
+            position++;
+        }
+
+        long mantissa = 0;
+        int digits = 0;
+        int significantDigits = 0;
+        int exponent = 0;
+        boolean dot = false;
+        for (; position < to; position++) {
+            byte b = data[position];
+            if (b >= '0' && b <= '9') {
+                digits++;
+                if (significantDigits > 0 || b != '0') {
+                    significantDigits++;
+                }
+                mantissa = mantissa * 10 + (b - '0');
+                if (dot) {
+                    exponent--;
+                }
+            } else if (b == '.' && !dot) {
+                dot = true;
+            } else {
+                break;
+            }
+        }
+
+        if (position < to && (data[position] == 'e' || data[position] == 'E') && digits > 0) {
+            position++;
+            boolean negativeExponent = false;
+            if (position < to && (data[position] == '-' || data[position] == '+')) {
+                negativeExponent = data[position] == '-';
+                position++;
+            }
+            int explicitExponent = 0;
+            int exponentDigits = 0;
+            for (; position < to && exponentDigits < 5; position++, exponentDigits++) {
+                int digit = data[position] - '0';
+                if (digit < 0 || digit > 9) {
+                    break;
+                }
+                explicitExponent = explicitExponent * 10 + digit;
+            }
+            if (exponentDigits == 0 || position != to) {
+                return fallback(data, from, to);
+            }
+            exponent += negativeExponent ? -explicitExponent : explicitExponent;
+        }
+
+        if (position != to || digits == 0 || significantDigits > MAX_MANTISSA_DIGITS
+                || mantissa >= MAX_EXACT_MANTISSA || exponent < -22 || exponent > 22) {
+            return fallback(data, from, to);
+        }
+
+        double value = exponent >= 0
+                ? mantissa * POWERS_OF_TEN[exponent]
+                : mantissa / POWERS_OF_TEN[-exponent];
+        return negative ? -value : value;
+    }
+
+    private static double fallback(byte[] data, int from, int to) {
+        String value = new String(data, from, to - from, StandardCharsets.US_ASCII);
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException ex) {
+            throw malformed(data, from, to);
+        }
+    }
+
+    private static ParseException malformed(byte[] data, int from, int to) {
+        return new ParseException(String.format("Malformed number '%s'",
+                new String(data, from, to - from, StandardCharsets.UTF_8)));
+    }
+}
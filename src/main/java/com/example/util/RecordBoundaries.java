@@ -0,0 +1,165 @@
+package com.example.util;
+
+import com.example.exceptions.ParseException;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+/**
+ * Finder of record boundaries that cut delimiter-separated content into byte
+ * ranges, so that each range can be parsed independently.
+ *
+ * Content is cut into chunks of equal length which are scanned in parallel
+ * twice. Quotes are tracked the way {@link CsvTokenizer} reads them: a quote
+ * opens a quoted field only at the start of a field, a quote in the middle of
+ * an unquoted field is a literal. The first pass runs this state machine over
+ * each chunk from every possible state at once, which gives the state at the
+ * end of the chunk for any state at its start, so states at chunk starts
+ * follow by composing chunks in order. The second pass moves the start of each
+ * chunk to the first line break outside of quotes, so line breaks inside
+ * quoted fields never become boundaries.
+ */
+final class RecordBoundaries {
+
+    private static final int SCAN_WINDOW_LENGTH = 8 * 1024 * 1024;
+    private static final byte QUOTE = '"';
+
+    private static final int FIELD_START = 0;
+    private static final int UNQUOTED = 1;
+    private static final int QUOTED = 2;
+    private static final int QUOTE_IN_QUOTED = 3;
+    private static final int STATES = 4;
+
+    private RecordBoundaries() {
+    }
+
+    /**
+     * Returns ascending offsets of record starts cutting given part of the source
+     * into ranges of about given length.
+     *
+     * @param source The source of bytes
+     * @param delimiter The single ASCII character delimiter
+     * @param from The offset of the first record, must not be inside quotes
+     * @param to The offset right after the last byte of content
+     * @param rangeLength The desired length of a range
+     * @param pool The pool scanning chunks in parallel
+     * @return Offsets of range starts followed by {@code to}, consecutive
+     *         offsets are distinct
+     *
+     * @throws ParseException If reading of the source failed
+     */
+    static long[] find(ByteSource source, char delimiter, long from, long to, long rangeLength, ForkJoinPool pool) {
+        long length = Math.max(0, to - from);
+        if (length == 0) {
+            return new long[]{from};
+        }
+        int chunks = (int) Math.min(Integer.MAX_VALUE - 1, (length + rangeLength - 1) / rangeLength);
+        long[] starts = new long[chunks + 1];
+        for (int i = 0; i <= chunks; i++) {
+            starts[i] = from + Math.min(length, i * rangeLength);
+        }
+
+        byte separator = (byte) delimiter;
+        int[][] transitions = pool.submit(() -> IntStream.range(0, chunks)
+                .parallel()
+                .mapToObj(i -> transitions(source, separator, starts[i], starts[i + 1]))
+                .toArray(int[][]::new))
+                .join();
+        int[] states = new int[chunks];
+        states[0] = FIELD_START;
+        for (int i = 1; i < chunks; i++) {
+            states[i] = transitions[i - 1][states[i - 1]];
+        }
+
+        long[] records = pool.submit(() -> IntStream.range(1, chunks)
+                .parallel()
+                .mapToLong(i -> nextRecord(source, separator, starts[i], to, states[i]))
+                .toArray())
+                .join();
+
+        long[] boundaries = new long[chunks + 1];
+        int count = 0;
+        boundaries[count++] = from;
+        for (long record : records) {
+            if (record > boundaries[count - 1] && record < to) {
+                boundaries[count++] = record;
+            }
+        }
+        boundaries[count++] = to;
+        long[] result = new long[count];
+        System.arraycopy(boundaries, 0, result, 0, count);
+        return result;
+    }
+
+    /**
+     * Returns states at the end of given range indexed by the state at its start.
+     */
+    private static int[] transitions(ByteSource source, byte delimiter, long from, long to) {
+        int[] states = new int[STATES];
+        for (int state = 0; state < STATES; state++) {
+            states[state] = state;
+        }
+        for (long offset = from; offset < to; offset += SCAN_WINDOW_LENGTH) {
+            ByteBuffer window = window(source, offset, (int) Math.min(SCAN_WINDOW_LENGTH, to - offset));
+            for (int i = 0; i < window.limit(); i++) {
+                byte b = window.get(i);
+                for (int state = 0; state < STATES; state++) {
+                    states[state] = next(states[state], b, delimiter);
+                }
+            }
+        }
+        return states;
+    }
+
+    /**
+     * Returns offset right after the first line break outside of quotes at or
+     * after given offset or {@code to} if there is none.
+     */
+    private static long nextRecord(ByteSource source, byte delimiter, long from, long to, int state) {
+        for (long offset = from; offset < to; offset += SCAN_WINDOW_LENGTH) {
+            ByteBuffer window = window(source, offset, (int) Math.min(SCAN_WINDOW_LENGTH, to - offset));
+            for (int i = 0; i < window.limit(); i++) {
+                byte b = window.get(i);
+                if (b == '\n' && state != QUOTED) {
+                    return offset + i + 1;
+                }
+                state = next(state, b, delimiter);
+            }
+        }
+        return to;
+    }
+
+    /**
+     * Returns state after given byte, following the rules of {@link CsvTokenizer}:
+     * whitespace before a field is skipped, a quote opens a quoted field only at
+     * its start and a doubled quote inside a quoted field is an escaped quote.
+     */
+    private static int next(int state, byte b, byte delimiter) {
+        switch (state) {
+            case QUOTED:
+                return b == QUOTE ? QUOTE_IN_QUOTED : QUOTED;
+            case QUOTE_IN_QUOTED:
+                if (b == QUOTE) {
+                    return QUOTED;
+                }
+                return b == delimiter || b == '\n' ? FIELD_START : UNQUOTED;
+            case FIELD_START:
+                if (b == QUOTE) {
+                    return QUOTED;
+                }
+                return b == delimiter || b == '\n' || (b >= 0 && b <= ' ') ? FIELD_START : UNQUOTED;
+            default:
+                return b == delimiter || b == '\n' ? FIELD_START : UNQUOTED;
+        }
+    }
+
+    private static ByteBuffer window(ByteSource source, long offset, int length) {
+        try {
+            return source.window(offset, length);
+        } catch (IOException ex) {
+            throw new ParseException(ex);
+        }
+    }
+}
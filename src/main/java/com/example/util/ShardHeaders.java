@@ -0,0 +1,46 @@
+package com.example.util;
+
+import com.example.exceptions.ParseException;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+/**
+ * Check that shards of a file share the header. The first header seen in any
+ * shard is expected in all other shards, shards without rows are not checked.
+ */
+class ShardHeaders {
+
+    private final AtomicReference<List<String>> expected = new AtomicReference<>();
+
+    /**
+     * Returns function passing rows of given shard through, headers are compared
+     * only when the schema of rows changes.
+     *
+     * @param path The path of the shard
+     */
+    UnaryOperator<CsvRow> checker(Path path) {
+        return new UnaryOperator<CsvRow>() {
+            private CsvSchema checked;
+
+            @Override
+            public CsvRow apply(CsvRow row) {
+                if (row.getSchema() != checked) {
+                    check(path, row.getSchema());
+                    checked = row.getSchema();
+                }
+                return row;
+            }
+        };
+    }
+
+    private void check(Path path, CsvSchema schema) {
+        List<String> names = schema.names();
+        if (!expected.compareAndSet(null, names) && !expected.get().equals(names)) {
+            throw new ParseException(String.format("Shard '%s' has header %s instead of %s",
+                    path, names, expected.get()));
+        }
+    }
+}
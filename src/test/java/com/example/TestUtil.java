@@ -1,14 +1,30 @@
 package com.example;
 
+import com.example.pojo.Matching;
+import com.example.repositories.CurrencyRepository;
 import com.example.util.CsvRow;
+import com.google.common.collect.ImmutableMap;
 
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 import java.util.stream.Stream;
 
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
 public class TestUtil {
 
+    public static final String PRODUCTS_HEADER = "id,price,currency,quantity,matching_id\n";
+    public static final Map<String, Double> SYNTHETIC_CURRENCIES = ImmutableMap.of("PLN", 1D, "USD", 4D);
+
     private TestUtil() {
     }
 
@@ -20,6 +36,56 @@ public class TestUtil {
         return new CsvRow(row);
     }
 
+    /**
+     * Stubs lookups of the currency repository mock, by name and by code,
+     * with given ratios. Other currencies are unknown.
+     */
+    public static void stubCurrencies(CurrencyRepository currencyRepository, Map<String, Double> ratios) {
+        when(currencyRepository.getRatioForCurrency(anyString())).thenReturn(Optional.empty());
+        when(currencyRepository.getCurrencyCode(anyString())).thenReturn(-1);
+        int code = 0;
+        for (Map.Entry<String, Double> ratio : ratios.entrySet()) {
+            when(currencyRepository.getRatioForCurrency(ratio.getKey())).thenReturn(Optional.of(ratio.getValue()));
+            when(currencyRepository.getCurrencyCode(ratio.getKey())).thenReturn(code);
+            when(currencyRepository.getRatio(code)).thenReturn(ratio.getValue());
+            code++;
+        }
+    }
+
+    /**
+     * Writes a temporary products file with the header and synthetic products
+     * {@code 0} to {@code count - 1}.
+     */
+    public static Path writeSyntheticProducts(int count, int matchingCount) throws IOException {
+        Path file = Files.createTempFile("products", ".csv");
+        file.toFile().deleteOnExit();
+        Files.write(file, (PRODUCTS_HEADER + syntheticProducts(0, count, matchingCount))
+                .getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+
+    /**
+     * Returns product records with ids from {@code from} to {@code to - 1}
+     * priced in {@link #SYNTHETIC_CURRENCIES} and spread over matchings
+     * {@code 0} to {@code matchingCount - 1}.
+     */
+    public static String syntheticProducts(int from, int to, int matchingCount) {
+        StringBuilder content = new StringBuilder();
+        for (int i = from; i < to; i++) {
+            content.append(i).append(',').append(i % 97).append(',').append(i % 3 == 0 ? "PLN" : "USD")
+                    .append(',').append(1 + i % 5).append(',').append(i % matchingCount).append('\n');
+        }
+        return content.toString();
+    }
+
+    /**
+     * Returns matchings {@code 49} down to {@code 0}, alternating between a
+     * limit of {@code 3} and a limit above the products count of a matching.
+     */
+    public static Stream<Matching> syntheticMatchings() {
+        return IntStream.range(0, 50).mapToObj(i -> new Matching(49L - i, i % 2 == 0 ? 3L : 1000L));
+    }
+
     public static <T> List<T> streamToList(Stream<T> stream) {
         return stream.collect(Collectors.toList());
     }
@@ -0,0 +1,125 @@
+package com.example.metrics;
+
+import com.example.metrics.PipelineMetrics.Stage;
+import com.example.pojo.AggregationResult;
+import com.example.repositories.csv.ColumnarProductRepositoryImpl;
+import com.example.repositories.csv.CurrencyRepositoryImpl;
+import com.example.repositories.csv.MatchingRepositoryImpl;
+import com.example.services.AggregationService;
+import com.example.services.ExternalAggregationService;
+import com.example.util.AggregationFileWriter;
+import com.example.util.DatasetGenerator;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static com.example.TestUtil.streamToList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class PipelineMetricsTest {
+
+    private final PipelineMetrics metrics = PipelineMetrics.INSTANCE;
+
+    @AfterEach
+    public void tearDown() {
+        metrics.disable();
+        metrics.reset();
+    }
+
+    @Test
+    public void shouldNotRecordWhileDisabled() {
+        new ColumnarProductRepositoryImpl("products.csv");
+
+        assertThat(metrics.active(Stage.SPLIT)).isNull();
+        assertThat(StageRecorder.of(Stage.SPLIT)).isNull();
+        assertThat(metrics.get(Stage.SPLIT).getRowsOut()).isZero();
+        assertThat(metrics.get(Stage.READ).getBytesRead()).isZero();
+    }
+
+    @Test
+    public void shouldRecordEveryStageOfPipeline() throws Exception {
+        Path directory = dataset(1000);
+        Path products = directory.resolve("data.csv");
+        Path output = directory.resolve("top_products.csv");
+        MatchingRepositoryImpl matchingRepository = new MatchingRepositoryImpl(
+                directory.resolve("matchings.csv").toString());
+        CurrencyRepositoryImpl currencyRepository = new CurrencyRepositoryImpl(
+                directory.resolve("currencies.csv").toString());
+        List<AggregationResult> results = streamToList(new AggregationService(
+                new ColumnarProductRepositoryImpl(products.toString()), matchingRepository, currencyRepository)
+                .aggregateProducts());
+        metrics.enable();
+
+        ColumnarProductRepositoryImpl productRepository = new ColumnarProductRepositoryImpl(products.toString());
+        AggregationFileWriter.INSTANCE.write(new AggregationService(
+                productRepository, matchingRepository, currencyRepository)
+                .aggregateProducts(), output.toString());
+
+        assertThat(metrics.get(Stage.READ).getBytesRead()).isEqualTo(Files.size(products));
+        assertThat(metrics.get(Stage.SPLIT).getRowsOut()).isEqualTo(productRepository.size());
+        assertThat(metrics.get(Stage.CONVERT).getRowsIn()).isEqualTo(productRepository.size());
+        assertThat(metrics.get(Stage.CONVERT).getRowsOut()).isEqualTo(productRepository.size());
+        assertThat(metrics.get(Stage.AGGREGATE).getRowsIn()).isEqualTo(productRepository.size());
+        assertThat(metrics.get(Stage.AGGREGATE).getRowsOut()).isEqualTo(results.size());
+        assertThat(metrics.get(Stage.WRITE).getRowsIn()).isEqualTo(results.size());
+        assertThat(metrics.get(Stage.WRITE).getBytesWritten()).isEqualTo(Files.size(output));
+        assertThat(metrics.summary()).contains("read", "split", "convert", "aggregate", "write");
+    }
+
+    @Test
+    public void shouldRecordExclusiveTimeOfNestedStages() throws Exception {
+        Path directory = dataset(200_000);
+        Path products = directory.resolve("data.csv");
+        MatchingRepositoryImpl matchingRepository = new MatchingRepositoryImpl(
+                directory.resolve("matchings.csv").toString());
+        CurrencyRepositoryImpl currencyRepository = new CurrencyRepositoryImpl(
+                directory.resolve("currencies.csv").toString());
+        metrics.enable();
+
+        long begin = System.nanoTime();
+        ColumnarProductRepositoryImpl productRepository = new ColumnarProductRepositoryImpl(products.toString());
+        productRepository.normalize(currencyRepository);
+        AggregationFileWriter.INSTANCE.write(new AggregationService(
+                productRepository, matchingRepository, currencyRepository).aggregateProducts(), directory.resolve("top_products.csv").toString());
+        streamToList(new ExternalAggregationService(products.toString(), matchingRepository, currencyRepository,
+                1024 * 1024).aggregateProducts());
+        long wall = System.nanoTime() - begin;
+
+        long total = 0;
+        for (Stage stage : Stage.values()) {
+            total += metrics.get(stage).getElapsedNanos();
+        }
+        assertThat(metrics.get(Stage.SPLIT).getElapsedNanos()).isPositive();
+        assertThat(metrics.get(Stage.CONVERT).getElapsedNanos()).isPositive();
+        assertThat(metrics.get(Stage.AGGREGATE).getElapsedNanos()).isPositive();
+        assertThat(metrics.get(Stage.WRITE).getElapsedNanos()).isPositive();
+        assertThat(total).isLessThanOrEqualTo(wall);
+    }
+
+    @Test
+    public void shouldExposeStagesOverJmx() throws Exception {
+        metrics.enable();
+        metrics.get(Stage.WRITE).addRowsIn(5);
+
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        ObjectName name = new ObjectName("com.example:type=PipelineMetrics,stage=write");
+
+        assertThat(server.getAttribute(name, "RowsIn")).isEqualTo(5L);
+    }
+
+    private static Path dataset(long productCount) throws Exception {
+        Path directory = Files.createTempDirectory("metrics");
+        new DatasetGenerator(1, productCount, 10, 3).generate(directory);
+        for (Path file : new Path[]{directory.resolve("data.csv"), directory.resolve("top_products.csv"),
+                directory.resolve("currencies.csv"), directory.resolve("matchings.csv"), directory}) {
+            file.toFile().deleteOnExit();
+        }
+        return directory;
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.repositories.csv;
+
+import com.example.exceptions.ParseException;
+import com.example.pojo.Product;
+import com.example.repositories.ColumnarProductRepository;
+import com.example.repositories.CurrencyRepository;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static com.example.TestUtil.streamToList;
+import static com.example.TestUtil.stubCurrencies;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Tests of the {@link ColumnarProductRepository} contract shared by its
+ * implementations, which provide the repository of a given file.
+ */
+public abstract class AbstractColumnarProductRepositoryImplTest {
+
+    private final Function<String, ColumnarProductRepository> factory;
+
+    protected AbstractColumnarProductRepositoryImplTest(Function<String, ColumnarProductRepository> factory) {
+        this.factory = factory;
+    }
+
+    protected ColumnarProductRepository repository(String csvFileName) {
+        return factory.apply(csvFileName);
+    }
+
+    @Test
+    public void shouldThrowExceptionOnNullInput() {
+        assertThrows(IllegalStateException.class, () ->
+                repository(null)
+        );
+    }
+
+    @Test
+    public void shouldThrowExceptionOnEmptyInput() {
+        assertThrows(IllegalStateException.class, () ->
+                repository("")
+        );
+    }
+
+    @Test
+    public void shouldThrowExceptionOnNotExistingFileInput() {
+        assertThrows(ParseException.class, () ->
+                repository("dummy")
+        );
+    }
+
+    @Test
+    public void shouldThrowExceptionOnInvalidFileInput() {
+        assertThrows(ParseException.class, () ->
+                repository("broken-currencies.csv")
+        );
+    }
+
+    @Test
+    public void shouldReturnStreamWithAllElements() {
+        ColumnarProductRepository productRepository = repository("products.csv");
+
+        List<Product> actual = streamToList(productRepository.findAll());
+
+        assertThat(actual).containsExactly(
+                new Product(1, 1000D, "GBP", 2, 2L),
+                new Product(2, 1050D, "EU", 1, 2L));
+    }
+
+    @Test
+    public void shouldReturnStreamWithAllElementsForMatchingId() {
+        ColumnarProductRepository productRepository = repository("products.csv");
+
+        List<Product> actual = streamToList(productRepository.findProductsByMatchingId(2L));
+
+        assertThat(actual).containsExactly(
+                new Product(1, 1000D, "GBP", 2, 2L),
+                new Product(2, 1050D, "EU", 1, 2L));
+    }
+
+    @Test
+    public void shouldReturnEmptyStreamForMissingMatchingId() {
+        ColumnarProductRepository productRepository = repository("products.csv");
+
+        List<Product> actual = streamToList(productRepository.findProductsByMatchingId(999L));
+
+        assertThat(actual).isEmpty();
+    }
+
+    @Test
+    public void shouldReturnEmptyStreamIfNoElementsPresent() {
+        ColumnarProductRepository productRepository = repository("products-empty.csv");
+
+        assertThat(productRepository.size()).isZero();
+        assertThat(streamToList(productRepository.findAll())).isEmpty();
+    }
+
+    @Test
+    public void shouldExposeColumnsWithDictionaryEncodedCurrencies() {
+        ColumnarProductRepository productRepository = repository("products.csv");
+
+        assertThat(productRepository.size()).isEqualTo(2);
+        assertThat(productRepository.getId(1)).isEqualTo(2L);
+        assertThat(productRepository.getPrice(1)).isEqualTo(1050D);
+        assertThat(productRepository.getQuantity(0)).isEqualTo(2);
+        assertThat(productRepository.getMatchingId(0)).isEqualTo(2L);
+        assertThat(productRepository.getCurrencyCount()).isEqualTo(2);
+        assertThat(productRepository.getCurrency(productRepository.getCurrencyCode(0))).isEqualTo("GBP");
+        assertThat(productRepository.getCurrency(productRepository.getCurrencyCode(1))).isEqualTo("EU");
+    }
+
+    @Test
+    public void shouldVisitRowsOfMatchingInLoadOrder() {
+        ColumnarProductRepository productRepository = repository("products.csv");
+        List<Integer> rows = new ArrayList<>();
+
+        productRepository.forEachRow(2L, rows::add);
+        productRepository.forEachRow(999L, rows::add);
+
+        assertThat(rows).containsExactly(0, 1);
+    }
+
+    @Test
+    public void shouldComputePriceColumnsOnceNormalized() {
+        ColumnarProductRepository productRepository = repository("products.csv");
+        CurrencyRepository currencyRepository = mock(CurrencyRepository.class);
+        stubCurrencies(currencyRepository, ImmutableMap.of("GBP", 2.5D));
+
+        productRepository.normalize(currencyRepository);
+        productRepository.normalize(currencyRepository);
+
+        verify(currencyRepository, times(1)).getCurrencyCode("GBP");
+        assertThat(productRepository.isNormalizedFor(currencyRepository)).isTrue();
+        assertThat(productRepository.isNormalizedFor(mock(CurrencyRepository.class))).isFalse();
+        assertThat(productRepository.getTotalPrice(0)).isEqualTo(2000D);
+        assertThat(productRepository.getConvertedTotalPrice(0)).isEqualTo(5000D);
+        assertThat(productRepository.getConvertedUnitPrice(0)).isEqualTo(2500D);
+        assertThat(productRepository.getTotalPrice(1)).isEqualTo(1050D);
+        assertThat(productRepository.getConvertedTotalPrice(1)).isNaN();
+        assertThat(productRepository.getConvertedUnitPrice(1)).isNaN();
+    }
+
+    @Test
+    public void shouldThrowExceptionOnPricesOfNotNormalizedRepository() {
+        ColumnarProductRepository productRepository = repository("products.csv");
+
+        assertThrows(IllegalStateException.class, () -> productRepository.getConvertedTotalPrice(0));
+    }
+}
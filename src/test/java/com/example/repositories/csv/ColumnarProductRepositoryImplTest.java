@@ -0,0 +1,50 @@
+package com.example.repositories.csv;
+
+import com.example.repositories.ColumnarProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.example.TestUtil.streamToList;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class ColumnarProductRepositoryImplTest extends AbstractColumnarProductRepositoryImplTest {
+
+    public ColumnarProductRepositoryImplTest() {
+        super(ColumnarProductRepositoryImpl::new);
+    }
+
+    @Test
+    public void shouldMergeShardsWithTheirOwnCurrencies() throws Exception {
+        Path directory = Files.createTempDirectory("products");
+        directory.toFile().deleteOnExit();
+        StringBuilder concatenated = new StringBuilder("id,price,currency,quantity,matching_id\n");
+        for (int shard = 0; shard < 6; shard++) {
+            StringBuilder content = new StringBuilder("id,price,currency,quantity,matching_id\n");
+            for (int i = 0; i < 1000 * shard; i++) {
+                String row = (shard * 10000 + i) + "," + i % 71 + "," + (i % (shard + 1) == 0 ? "PLN" : "C" + shard)
+                        + "," + (1 + i % 4) + "," + i % 13 + "\n";
+                content.append(row);
+                concatenated.append(row);
+            }
+            Path path = directory.resolve(String.format("data-%05d.csv", shard));
+            Files.write(path, content.toString().getBytes(StandardCharsets.UTF_8));
+            path.toFile().deleteOnExit();
+        }
+        Path single = Files.createTempFile("products", ".csv");
+        single.toFile().deleteOnExit();
+        Files.write(single, concatenated.toString().getBytes(StandardCharsets.UTF_8));
+
+        ColumnarProductRepository expected = new ColumnarProductRepositoryImpl(single.toString());
+        ColumnarProductRepository actual = new ColumnarProductRepositoryImpl(directory.toString(), true);
+
+        assertThat(actual.size()).isEqualTo(15000);
+        assertThat(actual.getCurrencyCount()).isEqualTo(expected.getCurrencyCount());
+        assertThat(streamToList(actual.findAll())).isEqualTo(streamToList(expected.findAll()));
+        assertThat(streamToList(actual.findProductsByMatchingId(5L)))
+                .isEqualTo(streamToList(expected.findProductsByMatchingId(5L)));
+        assertThat(Files.list(directory).filter(path -> !path.toString().endsWith(".csv")).count()).isZero();
+    }
+}
@@ -59,4 +59,34 @@ public class CurrencyRepositoryImplTest {
         assertThat(actual).isEqualTo(expected);
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldReturnRatioForCurrencyIgnoringCase() {
+        CurrencyRepository currencyRepository = new CurrencyRepositoryImpl("currencies.csv");
+
+        Optional<Double> expected = Optional.of(2.4);
+        Optional<Double> actual = currencyRepository.getRatioForCurrency("gbp");
+
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldReturnRatioForCurrencyCode() {
+        CurrencyRepository currencyRepository = new CurrencyRepositoryImpl("currencies.csv");
+
+        int gbp = currencyRepository.getCurrencyCode("GBP");
+        int pln = currencyRepository.getCurrencyCode("pln");
+
+        assertThat(gbp).isNotEqualTo(pln);
+        assertThat(currencyRepository.getRatio(gbp)).isEqualTo(2.4);
+        assertThat(currencyRepository.getRatio(pln)).isEqualTo(1D);
+    }
+
+    @Test
+    public void shouldReturnNegativeCodeForUnknownCurrency() {
+        CurrencyRepository currencyRepository = new CurrencyRepositoryImpl("currencies.csv");
+
+        assertThat(currencyRepository.getCurrencyCode("WMZ")).isEqualTo(-1);
+        assertThat(currencyRepository.getCurrencyCode(null)).isEqualTo(-1);
+    }
+
+}
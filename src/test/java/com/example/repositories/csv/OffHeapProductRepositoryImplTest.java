@@ -0,0 +1,67 @@
+package com.example.repositories.csv;
+
+import com.example.pojo.Product;
+import com.example.repositories.ColumnarProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static com.example.TestUtil.PRODUCTS_HEADER;
+import static com.example.TestUtil.streamToList;
+import static com.example.TestUtil.syntheticProducts;
+import static com.example.TestUtil.writeSyntheticProducts;
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class OffHeapProductRepositoryImplTest extends AbstractColumnarProductRepositoryImplTest {
+
+    public OffHeapProductRepositoryImplTest() {
+        super(OffHeapProductRepositoryImpl::new);
+    }
+
+    @Test
+    public void shouldKeepRecordsWhileStorageGrows() throws IOException {
+        Path file = Files.createTempFile("off-heap", ".csv");
+        try {
+            StringBuilder content = new StringBuilder("id,price,currency,quantity,matching_id\n");
+            for (int i = 0; i < 5000; i++) {
+                content.append(i).append(',').append(i / 4D).append(',').append(i % 2 == 0 ? "PLN" : "USD")
+                        .append(',').append(i % 7).append(',').append(i % 3).append('\n');
+            }
+            Files.write(file, content.toString().getBytes("UTF-8"));
+
+            ColumnarProductRepository productRepository = new OffHeapProductRepositoryImpl(file.toString());
+
+            assertThat(productRepository.size()).isEqualTo(5000);
+            assertThat(productRepository.getProduct(4321)).isEqualTo(new Product(4321, 1080.25D, "USD", 2, 1L));
+            assertThat(productRepository.getProduct(0)).isEqualTo(new Product(0, 0D, "PLN", 0, 0L));
+            assertThat(streamToList(productRepository.findProductsByMatchingId(2L))).hasSize(1666);
+        } finally {
+            Files.delete(file);
+        }
+    }
+
+    @Test
+    public void shouldLoadShardsIntoOffHeapStore() throws Exception {
+        Path directory = Files.createTempDirectory("products");
+        directory.toFile().deleteOnExit();
+        for (int shard = 0; shard < 5; shard++) {
+            Path path = directory.resolve(String.format("data-%05d.csv", shard));
+            Files.write(path, (PRODUCTS_HEADER + syntheticProducts(shard * 700, (shard + 1) * 700, 30))
+                    .getBytes(StandardCharsets.UTF_8));
+            path.toFile().deleteOnExit();
+        }
+        Path single = writeSyntheticProducts(3500, 30);
+
+        ColumnarProductRepository expected = new ColumnarProductRepositoryImpl(single.toString());
+        ColumnarProductRepository actual = new OffHeapProductRepositoryImpl(directory.toString());
+
+        assertThat(actual.size()).isEqualTo(3500);
+        assertThat(actual.getCurrencyCount()).isEqualTo(expected.getCurrencyCount());
+        assertThat(streamToList(actual.findAll())).isEqualTo(streamToList(expected.findAll()));
+        assertThat(streamToList(actual.findProductsByMatchingId(7L)))
+                .isEqualTo(streamToList(expected.findProductsByMatchingId(7L)));
+    }
+}
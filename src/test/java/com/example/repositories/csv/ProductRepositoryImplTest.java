@@ -5,6 +5,9 @@ import com.example.exceptions.ParseException;
 import com.example.pojo.Product;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 
 import static com.example.TestUtil.streamToList;
@@ -83,4 +86,22 @@ public class ProductRepositoryImplTest {
         assertThat(actual).isEmpty();
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldLoadShardsOfDirectoryInOrder() throws Exception {
+        Path directory = Files.createTempDirectory("products");
+        directory.toFile().deleteOnExit();
+        write(directory.resolve("data-00001.csv"), "id,price,currency,quantity,matching_id\n2,1050,EU,1,2\n");
+        write(directory.resolve("data-00000.csv"), "id,price,currency,quantity,matching_id\n1,1000,GBP,2,2\n");
+
+        ProductRepository productRepository = new ProductRepositoryImpl(directory.toString());
+
+        assertThat(streamToList(productRepository.findAll())).containsExactly(
+                new Product(1, 1000D, "GBP", 2, 2L),
+                new Product(2, 1050D, "EU", 1, 2L));
+    }
+
+    private static void write(Path path, String content) throws Exception {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        path.toFile().deleteOnExit();
+    }
+}
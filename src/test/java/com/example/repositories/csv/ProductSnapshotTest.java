@@ -0,0 +1,116 @@
+package com.example.repositories.csv;
+
+import com.example.pojo.Product;
+import com.example.repositories.ColumnarProductRepository;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.List;
+
+import static com.example.TestUtil.PRODUCTS_HEADER;
+import static com.example.TestUtil.streamToList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+public class ProductSnapshotTest {
+
+    @Test
+    public void shouldWriteSnapshotAndLoadSameProductsFromIt() throws Exception {
+        Path file = csvFile(PRODUCTS_HEADER + "1,1000,GBP,2,2\n2,10.5,zł,1,2\n3,7,GBP,3,1\n");
+        Path snapshot = file.resolveSibling(file.getFileName() + ProductSnapshot.SUFFIX);
+
+        List<Product> parsed = streamToList(new ColumnarProductRepositoryImpl(file.toString(), true).findAll());
+        assertThat(snapshot).exists();
+
+        ColumnarProductRepository heap = new ColumnarProductRepositoryImpl(file.toString(), true);
+        ColumnarProductRepository offHeap = new OffHeapProductRepositoryImpl(file.toString(), true);
+
+        assertThat(parsed).containsExactly(
+                new Product(1, 1000D, "GBP", 2, 2L),
+                new Product(2, 10.5D, "zł", 1, 2L),
+                new Product(3, 7D, "GBP", 3, 1L));
+        assertThat(streamToList(heap.findAll())).isEqualTo(parsed);
+        assertThat(streamToList(offHeap.findAll())).isEqualTo(parsed);
+        assertThat(streamToList(heap.findProductsByMatchingId(1L))).containsExactly(parsed.get(2));
+        assertThat(heap.getCurrencyCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void shouldIgnoreSnapshotIfSourceChangedWithSameSizeAndTime() throws Exception {
+        Path file = csvFile(PRODUCTS_HEADER + "1,1000,GBP,2,2\n");
+        FileTime modified = Files.getLastModifiedTime(file);
+        new ColumnarProductRepositoryImpl(file.toString(), true);
+
+        Files.write(file, (PRODUCTS_HEADER + "1,1000,USD,2,2\n").getBytes(StandardCharsets.UTF_8));
+        Files.setLastModifiedTime(file, modified);
+        ColumnarProductRepository repository = new ColumnarProductRepositoryImpl(file.toString(), true);
+
+        assertThat(streamToList(repository.findAll())).containsExactly(new Product(1, 1000D, "USD", 2, 2L));
+        assertThat(streamToList(new ColumnarProductRepositoryImpl(file.toString(), true).findAll()))
+                .containsExactly(new Product(1, 1000D, "USD", 2, 2L));
+    }
+
+    @Test
+    public void shouldKeySnapshotWithSourceTakenBeforeParsing() throws Exception {
+        Path file = csvFile(PRODUCTS_HEADER + "1,1000,GBP,2,2\n");
+        ProductSnapshot productSnapshot = new ProductSnapshot(file);
+        assertThat(productSnapshot.read(mock(ProductSnapshot.Sink.class))).isFalse();
+        ColumnarProductRepository parsed = new ColumnarProductRepositoryImpl(file.toString(), false);
+
+        Files.write(file, (PRODUCTS_HEADER + "1,1000,GBP,2,2\n2,7,USD,1,1\n").getBytes(StandardCharsets.UTF_8));
+        productSnapshot.write(parsed);
+        ColumnarProductRepository repository = new ColumnarProductRepositoryImpl(file.toString(), true);
+
+        assertThat(streamToList(repository.findAll())).containsExactly(
+                new Product(1, 1000D, "GBP", 2, 2L),
+                new Product(2, 7D, "USD", 1, 1L));
+    }
+
+    @Test
+    public void shouldParseSourceIfSnapshotIsTruncated() throws Exception {
+        Path file = csvFile(PRODUCTS_HEADER + "1,1000,GBP,2,2\n2,1050,EU,1,2\n");
+        Path snapshot = file.resolveSibling(file.getFileName() + ProductSnapshot.SUFFIX);
+        new ColumnarProductRepositoryImpl(file.toString(), true);
+
+        byte[] content = Files.readAllBytes(snapshot);
+        Files.write(snapshot, Arrays.copyOf(content, content.length - 4));
+        ColumnarProductRepository repository = new ColumnarProductRepositoryImpl(file.toString(), true);
+
+        assertThat(streamToList(repository.findAll())).containsExactly(
+                new Product(1, 1000D, "GBP", 2, 2L),
+                new Product(2, 1050D, "EU", 1, 2L));
+        assertThat(Files.size(snapshot)).isEqualTo(content.length);
+    }
+
+    @Test
+    public void shouldParseSourceIfSnapshotIsDamaged() throws Exception {
+        Path file = csvFile(PRODUCTS_HEADER + "1,1000,GBP,2,2\n2,1050,EU,1,2\n");
+        Path snapshot = file.resolveSibling(file.getFileName() + ProductSnapshot.SUFFIX);
+        new ColumnarProductRepositoryImpl(file.toString(), true);
+
+        byte[] content = Files.readAllBytes(snapshot);
+        byte[] damaged = content.clone();
+        damaged[damaged.length - 9] = 7;
+        Files.write(snapshot, damaged);
+        ColumnarProductRepository repository = new ColumnarProductRepositoryImpl(file.toString(), true);
+
+        assertThat(streamToList(repository.findAll())).containsExactly(
+                new Product(1, 1000D, "GBP", 2, 2L),
+                new Product(2, 1050D, "EU", 1, 2L));
+        assertThat(Files.readAllBytes(snapshot)).isEqualTo(content);
+    }
+
+    private Path csvFile(String content) throws Exception {
+        Path directory = Files.createTempDirectory("snapshot");
+        directory.toFile().deleteOnExit();
+        Path file = directory.resolve("products.csv");
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        file.toFile().deleteOnExit();
+        file.resolveSibling(file.getFileName() + ProductSnapshot.SUFFIX).toFile().deleteOnExit();
+        return file;
+    }
+}
@@ -7,22 +7,34 @@ import com.example.pojo.Product;
 import com.example.repositories.CurrencyRepository;
 import com.example.repositories.MatchingRepository;
 import com.example.repositories.ProductRepository;
+import com.example.repositories.csv.ColumnarProductRepositoryImpl;
 import com.google.common.collect.ImmutableMap;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
 import java.util.function.Supplier;
 import java.util.stream.Stream;
 
+import static com.example.TestUtil.PRODUCTS_HEADER;
+import static com.example.TestUtil.SYNTHETIC_CURRENCIES;
 import static com.example.TestUtil.streamToList;
+import static com.example.TestUtil.stubCurrencies;
+import static com.example.TestUtil.syntheticMatchings;
+import static com.example.TestUtil.writeSyntheticProducts;
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.junit.jupiter.api.Assertions.expectThrows;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.reset;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class AggregationServiceTest {
@@ -82,7 +94,7 @@ public class AggregationServiceTest {
     public void shouldThrowExceptionIfCurrencyNotFoundInsideCurrencyRepository() {
         when(matchingRepositoryMock.findAll()).thenReturn(Stream.of(new Matching(1L, 0L)));
         when(productRepositoryMock.findAll()).thenReturn(Stream.of(new Product(1, 10D, "USD", 1, 1L)));
-        when(currencyRepositoryMock.getRatioForCurrency("USD")).thenReturn(Optional.empty());
+        stubCurrencies(currencyRepositoryMock, ImmutableMap.of());
 
         ProcessingException processingException = expectThrows(ProcessingException.class, () ->
                 streamToList(aggregationService.aggregateProducts())
@@ -201,13 +213,144 @@ public class AggregationServiceTest {
         assertThat(actual).contains(new AggregationResult(1, 5_000D, 500D, "PLN", 1));
     }
 
-    private void initCurrencyMockWith(Map<String, Double> currencies) {
-        currencies.forEach((currency, ratio) ->
-                when(currencyRepositoryMock.getRatioForCurrency(currency))
-                        .thenReturn(Optional.of(ratio))
+    @Test
+    public void shouldReadProductsOnlyOnce() {
+        when(matchingRepositoryMock.findAll()).thenReturn(Stream.of(new Matching(1L, 1L), new Matching(2L, 1L)));
+        when(productRepositoryMock.findAll()).thenReturn(Stream.of(
+                new Product(1, 500D, "PLN", 1, 1L),
+                new Product(2, 250D, "PLN", 1, 2L)
+        ));
+        initCurrencyMockWith(ImmutableMap.of("PLN", 1D));
+
+        streamToList(aggregationService.aggregateProducts());
+
+        verify(productRepositoryMock, times(1)).findAll();
+        verify(productRepositoryMock, never()).findProductsByMatchingId(any());
+    }
+
+    @Test
+    public void shouldKeepMatchingsOrderAndSortByConvertedTotalPrice() {
+        when(matchingRepositoryMock.findAll()).thenReturn(Stream.of(new Matching(2L, 2L), new Matching(1L, 2L)));
+        when(productRepositoryMock.findAll()).thenReturn(Stream.of(
+                new Product(1, 100D, "PLN", 1, 1L),
+                new Product(2, 100D, "USD", 1, 2L),
+                new Product(3, 300D, "PLN", 1, 2L),
+                new Product(4, 200D, "PLN", 1, 1L),
+                new Product(5, 50D, "PLN", 1, 2L)
+        ));
+        initCurrencyMockWith(ImmutableMap.of("PLN", 1D, "USD", 4D));
+
+        List<AggregationResult> actual = streamToList(aggregationService.aggregateProducts());
+
+        assertThat(actual).containsExactly(
+                new AggregationResult(2, 100D, 87.5D, "USD", 1), // 87.5 = (400 + 300) / 2 / 4
+                new AggregationResult(2, 300D, 350D, "PLN", 1),
+                new AggregationResult(1, 200D, 150D, "PLN", 0),
+                new AggregationResult(1, 100D, 150D, "PLN", 0)
         );
     }
 
+    @Test
+    public void shouldAggregateColumnarRepositoryWithoutReadingProductsStream() {
+        when(matchingRepositoryMock.findAll()).thenReturn(Stream.of(new Matching(2L, 1L), new Matching(1L, 1L)));
+        initCurrencyMockWith(ImmutableMap.of("GBP", 2D, "EU", 4D));
+        AggregationService service = new AggregationService(
+                new ColumnarProductRepositoryImpl("products.csv"),
+                matchingRepositoryMock,
+                currencyRepositoryMock
+        );
+
+        List<AggregationResult> actual = streamToList(service.aggregateProducts());
+
+        assertThat(actual).containsExactly(
+                new AggregationResult(2, 1050D, 1050D, "EU", 1)
+        );
+    }
+
+    @Test
+    public void shouldReturnSameResultsInParallelMode() throws Exception {
+        Path file = writeSyntheticProducts(3000, 40);
+        ColumnarProductRepositoryImpl products = new ColumnarProductRepositoryImpl(file.toString());
+        when(matchingRepositoryMock.findAll()).then(s -> syntheticMatchings());
+        initCurrencyMockWith(SYNTHETIC_CURRENCIES);
+
+        List<AggregationResult> sequential = streamToList(
+                new AggregationService(products, matchingRepositoryMock, currencyRepositoryMock).aggregateProducts());
+        List<AggregationResult> parallel = streamToList(
+                new AggregationService(products, matchingRepositoryMock, currencyRepositoryMock, 4).aggregateProducts());
+
+        assertThat(sequential).hasSize(20 * 3 + 20 * 75);
+        assertThat(parallel).isEqualTo(sequential);
+    }
+
+    @Test
+    public void shouldReturnSameResultsForNormalizedRepository() throws Exception {
+        Path file = Files.createTempFile("products", ".csv");
+        file.toFile().deleteOnExit();
+        StringBuilder content = new StringBuilder(PRODUCTS_HEADER);
+        for (int i = 0; i < 3000; i++) {
+            content.append(i).append(',').append(i % 89 / 7D).append(',').append(i % 3 == 0 ? "PLN" : "USD")
+                    .append(',').append(i % 6).append(',').append(i % 40).append('\n');
+        }
+        Files.write(file, content.toString().getBytes(StandardCharsets.UTF_8));
+        when(matchingRepositoryMock.findAll()).then(s -> syntheticMatchings());
+        initCurrencyMockWith(ImmutableMap.of("PLN", 1D, "USD", 3.7D));
+        ColumnarProductRepositoryImpl normalized = new ColumnarProductRepositoryImpl(file.toString());
+        normalized.normalize(currencyRepositoryMock);
+
+        List<AggregationResult> expected = streamToList(new AggregationService(
+                new ColumnarProductRepositoryImpl(file.toString()), matchingRepositoryMock, currencyRepositoryMock)
+                .aggregateProducts());
+        List<AggregationResult> actual = streamToList(
+                new AggregationService(normalized, matchingRepositoryMock, currencyRepositoryMock).aggregateProducts());
+
+        assertThat(actual).isEqualTo(expected);
+    }
+
+    @Test
+    public void shouldThrowExceptionIfCurrencyNotFoundInNormalizedRepository() {
+        when(matchingRepositoryMock.findAll()).thenReturn(Stream.of(new Matching(2L, 1L)));
+        stubCurrencies(currencyRepositoryMock, ImmutableMap.of("GBP", 1D));
+        ColumnarProductRepositoryImpl products = new ColumnarProductRepositoryImpl("products.csv");
+        products.normalize(currencyRepositoryMock);
+        AggregationService service = new AggregationService(products, matchingRepositoryMock, currencyRepositoryMock);
+
+        ProcessingException processingException = expectThrows(ProcessingException.class, () ->
+                streamToList(service.aggregateProducts())
+        );
+
+        assertThat(processingException.getMessage()).isEqualTo("Can't find currency 'EU'");
+    }
+
+    @Test
+    public void shouldThrowExceptionIfCurrencyNotFoundInParallelMode() {
+        when(matchingRepositoryMock.findAll()).thenReturn(Stream.of(new Matching(2L, 1L)));
+        stubCurrencies(currencyRepositoryMock, ImmutableMap.of("GBP", 1D));
+        AggregationService service = new AggregationService(
+                new ColumnarProductRepositoryImpl("products.csv"),
+                matchingRepositoryMock,
+                currencyRepositoryMock,
+                2
+        );
+
+        ProcessingException processingException = expectThrows(ProcessingException.class, () ->
+                streamToList(service.aggregateProducts())
+        );
+
+        assertThat(processingException.getMessage()).isEqualTo("Can't find currency 'EU'");
+    }
+
+    @Test
+    public void shouldThrowExceptionOnNonPositiveParallelism() {
+        expectThrows(IllegalStateException.class, () ->
+                new AggregationService(productRepositoryMock, matchingRepositoryMock, currencyRepositoryMock, 0)
+        );
+    }
+
+    private void initCurrencyMockWith(Map<String, Double> currencies) {
+        stubCurrencies(currencyRepositoryMock, currencies);
+    }
+
     private <T> Supplier<Stream<T>> supplierOfElements(T... elements) {
         return () -> Stream.of(elements);
     }
@@ -0,0 +1,87 @@
+package com.example.services;
+
+import com.example.exceptions.ProcessingException;
+import com.example.pojo.AggregationResult;
+import com.example.pojo.Matching;
+import com.example.repositories.CurrencyRepository;
+import com.example.repositories.MatchingRepository;
+import com.example.repositories.csv.ColumnarProductRepositoryImpl;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+
+import static com.example.TestUtil.SYNTHETIC_CURRENCIES;
+import static com.example.TestUtil.streamToList;
+import static com.example.TestUtil.stubCurrencies;
+import static com.example.TestUtil.syntheticMatchings;
+import static com.example.TestUtil.writeSyntheticProducts;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.expectThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ExternalAggregationServiceTest {
+
+    private MatchingRepository matchingRepositoryMock = mock(MatchingRepository.class);
+    private CurrencyRepository currencyRepositoryMock = mock(CurrencyRepository.class);
+
+    @Test
+    public void shouldThrowExceptionOnNonPositiveMemoryBudget() {
+        expectThrows(IllegalStateException.class, () ->
+                new ExternalAggregationService("products.csv", matchingRepositoryMock, currencyRepositoryMock, 0)
+        );
+    }
+
+    @Test
+    public void shouldReturnSameResultsAsInMemoryAggregation() throws Exception {
+        Path file = writeSyntheticProducts(3000, 60);
+        Supplier<Stream<Matching>> matchings = () -> Stream.concat(
+                syntheticMatchings(),
+                Stream.of(new Matching(7L, 1L)));
+        when(matchingRepositoryMock.findAll()).then(s -> matchings.get());
+        stubCurrencies(currencyRepositoryMock, SYNTHETIC_CURRENCIES);
+        Path tempDirectory = Files.createTempDirectory("external");
+        tempDirectory.toFile().deleteOnExit();
+
+        List<AggregationResult> expected = streamToList(new AggregationService(
+                new ColumnarProductRepositoryImpl(file.toString()), matchingRepositoryMock, currencyRepositoryMock)
+                .aggregateProducts());
+        List<AggregationResult> actual = streamToList(new ExternalAggregationService(
+                file.toString(), matchingRepositoryMock, currencyRepositoryMock, 1024, tempDirectory)
+                .aggregateProducts());
+
+        assertThat(actual).hasSize(25 * 3 + 25 * 50 + 1);
+        assertThat(actual).isEqualTo(expected);
+        try (Stream<Path> files = Files.list(tempDirectory)) {
+            assertThat(files.count()).isZero();
+        }
+    }
+
+    @Test
+    public void shouldThrowExceptionIfCurrencyNotFound() {
+        when(matchingRepositoryMock.findAll()).thenReturn(Stream.of(new Matching(2L, 1L)));
+        stubCurrencies(currencyRepositoryMock, ImmutableMap.of());
+        ExternalAggregationService service = new ExternalAggregationService(
+                "products.csv", matchingRepositoryMock, currencyRepositoryMock, 16);
+
+        ProcessingException processingException = expectThrows(ProcessingException.class, () ->
+                streamToList(service.aggregateProducts())
+        );
+
+        assertThat(processingException.getMessage()).isEqualTo("Can't find currency 'GBP'");
+    }
+
+    @Test
+    public void shouldReturnEmptyResultOnEmptyProducts() {
+        when(matchingRepositoryMock.findAll()).thenReturn(Stream.of(new Matching(2L, 1L)));
+        ExternalAggregationService service = new ExternalAggregationService(
+                "products-empty.csv", matchingRepositoryMock, currencyRepositoryMock, 16);
+
+        assertThat(streamToList(service.aggregateProducts())).isEmpty();
+    }
+}
@@ -0,0 +1,141 @@
+package com.example.services;
+
+import com.example.pojo.AggregationResult;
+import com.example.pojo.Matching;
+import com.example.repositories.CurrencyRepository;
+import com.example.repositories.MatchingRepository;
+import com.example.repositories.csv.ColumnarProductRepositoryImpl;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static com.example.TestUtil.PRODUCTS_HEADER;
+import static com.example.TestUtil.SYNTHETIC_CURRENCIES;
+import static com.example.TestUtil.streamToList;
+import static com.example.TestUtil.stubCurrencies;
+import static com.example.TestUtil.syntheticProducts;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.expectThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class IncrementalAggregationServiceTest {
+
+    private MatchingRepository matchingRepositoryMock = mock(MatchingRepository.class);
+    private CurrencyRepository currencyRepositoryMock = mock(CurrencyRepository.class);
+
+    @Test
+    public void shouldThrowExceptionIfFileNameIsEmpty() {
+        expectThrows(IllegalStateException.class, () ->
+                new IncrementalAggregationService("", matchingRepositoryMock, currencyRepositoryMock)
+        );
+    }
+
+    @Test
+    public void shouldThrowExceptionIfFileIsCompressed() throws Exception {
+        Path file = Files.createTempFile("products", ".csv.gz");
+        file.toFile().deleteOnExit();
+        IncrementalAggregationService service = new IncrementalAggregationService(
+                file.toString(), matchingRepositoryMock, currencyRepositoryMock);
+
+        expectThrows(IllegalStateException.class, service::aggregateProducts);
+    }
+
+    @Test
+    public void shouldReturnSameResultsAsFullAggregationAfterAppends() throws Exception {
+        Path file = createFile();
+        mockMatchings(() -> IntStream.range(0, 20).mapToObj(i -> new Matching(i, 1L + i % 4)));
+        IncrementalAggregationService service = incrementalService(file);
+
+        append(file, 0, 500);
+        assertThat(streamToList(service.aggregateProducts())).isEqualTo(fullAggregation(file));
+        append(file, 500, 510);
+        write(file, "510,1,PL");
+        assertThat(streamToList(service.aggregateProducts())).isEqualTo(fullAggregation(file, 510));
+        write(file, "N,1,3\n");
+        append(file, 511, 530);
+        assertThat(streamToList(service.aggregateProducts())).isEqualTo(fullAggregation(file));
+    }
+
+    @Test
+    public void shouldAggregateFromStartIfMatchingsChange() throws Exception {
+        Path file = createFile();
+        append(file, 0, 200);
+        mockMatchings(() -> IntStream.range(0, 20).mapToObj(i -> new Matching(i, 2L)));
+        streamToList(incrementalService(file).aggregateProducts());
+
+        mockMatchings(() -> IntStream.range(0, 10).mapToObj(i -> new Matching(i, 3L)));
+        append(file, 200, 250);
+
+        assertThat(streamToList(incrementalService(file).aggregateProducts())).isEqualTo(fullAggregation(file));
+    }
+
+    @Test
+    public void shouldAggregateFromStartIfFileIsRewritten() throws Exception {
+        Path file = createFile();
+        append(file, 0, 200);
+        mockMatchings(() -> IntStream.range(0, 20).mapToObj(i -> new Matching(i, 2L)));
+        streamToList(incrementalService(file).aggregateProducts());
+
+        Files.delete(file);
+        createFile(file);
+        append(file, 1000, 1300);
+
+        assertThat(streamToList(incrementalService(file).aggregateProducts())).isEqualTo(fullAggregation(file));
+    }
+
+    private IncrementalAggregationService incrementalService(Path file) {
+        stubCurrencies(currencyRepositoryMock, SYNTHETIC_CURRENCIES);
+        return new IncrementalAggregationService(file.toString(), matchingRepositoryMock, currencyRepositoryMock);
+    }
+
+    private void mockMatchings(Supplier<Stream<Matching>> matchings) {
+        when(matchingRepositoryMock.findAll()).then(s -> matchings.get());
+    }
+
+    private List<AggregationResult> fullAggregation(Path file) throws Exception {
+        return fullAggregation(file, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Aggregates complete records of the file up to given number of products.
+     */
+    private List<AggregationResult> fullAggregation(Path file, int products) throws Exception {
+        Path copy = Files.createTempFile("full", ".csv");
+        copy.toFile().deleteOnExit();
+        try (Stream<String> lines = Files.lines(file)) {
+            Files.write(copy, (Iterable<String>) lines.limit(products + 1L)::iterator);
+        }
+        return streamToList(new AggregationService(
+                new ColumnarProductRepositoryImpl(copy.toString()), matchingRepositoryMock, currencyRepositoryMock)
+                .aggregateProducts());
+    }
+
+    private static Path createFile() throws Exception {
+        Path file = Files.createTempFile("products", ".csv");
+        file.toFile().deleteOnExit();
+        createFile(file);
+        return file;
+    }
+
+    private static void createFile(Path file) throws Exception {
+        Files.write(file, PRODUCTS_HEADER.getBytes(StandardCharsets.UTF_8));
+        Path state = file.resolveSibling(file.getFileName() + IncrementalAggregationService.STATE_SUFFIX);
+        state.toFile().deleteOnExit();
+    }
+
+    private static void append(Path file, int from, int to) throws Exception {
+        write(file, syntheticProducts(from, to, 25));
+    }
+
+    private static void write(Path file, String content) throws Exception {
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+    }
+}
@@ -0,0 +1,111 @@
+package com.example.services;
+
+import com.example.exceptions.ProcessingException;
+import com.example.pojo.AggregationResult;
+import com.example.pojo.Matching;
+import com.example.pojo.Product;
+import com.example.repositories.CurrencyRepository;
+import com.example.repositories.MatchingRepository;
+import com.example.repositories.ProductRepository;
+import com.google.common.collect.ImmutableMap;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+import static com.example.TestUtil.streamToList;
+import static com.example.TestUtil.stubCurrencies;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.expectThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LiveAggregationServiceTest {
+
+    private ProductRepository productRepositoryMock = mock(ProductRepository.class);
+    private MatchingRepository matchingRepositoryMock = mock(MatchingRepository.class);
+    private CurrencyRepository currencyRepositoryMock = mock(CurrencyRepository.class);
+
+    @BeforeEach
+    public void setUp() {
+        stubCurrencies(currencyRepositoryMock, ImmutableMap.of("PLN", 1D, "USD", 4D));
+    }
+
+    @Test
+    public void shouldSelectNextProductAfterDeletingSelectedOne() {
+        when(matchingRepositoryMock.findAll()).then(s -> IntStream.of(1).mapToObj(i -> new Matching(1L, 1L)));
+        LiveAggregationService service = new LiveAggregationService(matchingRepositoryMock, currencyRepositoryMock);
+        service.insert(new Product(1L, 10D, "PLN", 1, 1L));
+        service.insert(new Product(2L, 5D, "USD", 1, 1L));
+
+        assertThat(streamToList(service.results(1L)))
+                .containsExactly(new AggregationResult(1L, 5D, 5D, "USD", 1L));
+        assertThat(service.delete(2L)).isTrue();
+        assertThat(streamToList(service.results(1L)))
+                .containsExactly(new AggregationResult(1L, 10D, 10D, "PLN", 0L));
+        assertThat(service.delete(2L)).isFalse();
+    }
+
+    @Test
+    public void shouldThrowExceptionOnDuplicateInsert() {
+        when(matchingRepositoryMock.findAll()).then(s -> IntStream.of(1).mapToObj(i -> new Matching(1L, 1L)));
+        LiveAggregationService service = new LiveAggregationService(matchingRepositoryMock, currencyRepositoryMock);
+        service.insert(new Product(1L, 10D, "PLN", 1, 1L));
+
+        expectThrows(IllegalStateException.class, () ->
+                service.insert(new Product(1L, 10D, "PLN", 1, 1L))
+        );
+    }
+
+    @Test
+    public void shouldKeepStateIfUpdateHasUnknownCurrency() {
+        when(matchingRepositoryMock.findAll()).then(s -> IntStream.of(1).mapToObj(i -> new Matching(1L, 1L)));
+        LiveAggregationService service = new LiveAggregationService(matchingRepositoryMock, currencyRepositoryMock);
+        service.insert(new Product(1L, 10D, "PLN", 1, 1L));
+
+        ProcessingException processingException = expectThrows(ProcessingException.class, () ->
+                service.update(new Product(1L, 10D, "EUR", 1, 1L))
+        );
+
+        assertThat(processingException.getMessage()).isEqualTo("Can't find currency 'EUR'");
+        assertThat(streamToList(service.results()))
+                .containsExactly(new AggregationResult(1L, 10D, 10D, "PLN", 0L));
+    }
+
+    @Test
+    public void shouldReturnSameResultsAsFullAggregationAfterChanges() {
+        when(matchingRepositoryMock.findAll()).then(s -> IntStream.range(0, 30)
+                .mapToObj(i -> new Matching(i % 25, i < 25 ? 1L + i % 4 : 6L)));
+        LiveAggregationService service = new LiveAggregationService(matchingRepositoryMock, currencyRepositoryMock);
+        AggregationService aggregationService = new AggregationService(
+                productRepositoryMock, matchingRepositoryMock, currencyRepositoryMock);
+        Map<Long, Product> products = new LinkedHashMap<>();
+        when(productRepositoryMock.findAll()).then(s -> new ArrayList<>(products.values()).stream());
+        Random random = new Random(19);
+
+        for (int step = 0; step < 3000; step++) {
+            long id = random.nextInt(400);
+            Product product = new Product(id, random.nextInt(20), random.nextBoolean() ? "PLN" : "USD",
+                    random.nextInt(4), random.nextInt(30));
+            if (!products.containsKey(id)) {
+                service.insert(product);
+                products.put(id, product);
+            } else if (random.nextBoolean()) {
+                service.update(product);
+                products.put(id, product);
+            } else {
+                service.delete(id);
+                products.remove(id);
+            }
+            if (step % 100 == 0) {
+                List<AggregationResult> expected = streamToList(aggregationService.aggregateProducts());
+                assertThat(streamToList(service.results())).isEqualTo(expected);
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.example.services;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class TopKSelectorTest {
+
+    @Test
+    public void shouldThrowExceptionOnNegativeLimit() {
+        assertThrows(IllegalStateException.class, () ->
+                new TopKSelector<String>(-1)
+        );
+    }
+
+    @Test
+    public void shouldSelectNothingForZeroLimit() {
+        TopKSelector<String> selector = new TopKSelector<>(0);
+        selector.offer(10D, 0, "a");
+        selector.sortDescending();
+
+        assertThat(selector.size()).isEqualTo(0);
+        assertThat(selector.offered()).isEqualTo(1);
+    }
+
+    @Test
+    public void shouldKeepAllItemsIfLimitIsGreaterThanGroup() {
+        TopKSelector<String> selector = new TopKSelector<>(Long.MAX_VALUE);
+        selector.offer(1D, 0, "a");
+        selector.offer(3D, 1, "b");
+        selector.offer(2D, 2, "c");
+        selector.sortDescending();
+
+        assertThat(payloads(selector)).containsExactly("b", "c", "a");
+    }
+
+    @Test
+    public void shouldResolveTiesByReference() {
+        TopKSelector<String> selector = new TopKSelector<>(2);
+        selector.offer(5D, 0, "a");
+        selector.offer(5D, 1, "b");
+        selector.offer(5D, 2, "c");
+        selector.sortDescending();
+
+        assertThat(payloads(selector)).containsExactly("a", "b");
+    }
+
+    @Test
+    public void shouldContinueSelectionAfterRestore() {
+        TopKSelector<String> saved = new TopKSelector<>(2);
+        saved.offer(1D, 0, "a");
+        saved.offer(3D, 1, "b");
+        saved.offer(2D, 2, "c");
+        saved.sortDescending();
+
+        TopKSelector<String> selector = new TopKSelector<>(2);
+        selector.restore(saved.offered(), new double[]{saved.key(0), saved.key(1)},
+                new long[]{saved.ref(0), saved.ref(1)}, Arrays.asList(saved.payload(0), saved.payload(1)));
+        assertThat(selector.payload(0)).isEqualTo("b");
+        selector.offer(2D, 3, "d");
+        selector.offer(4D, 4, "e");
+        selector.sortDescending();
+
+        assertThat(selector.offered()).isEqualTo(5);
+        assertThat(selector.size()).isEqualTo(2);
+        assertThat(selector.payload(0)).isEqualTo("e");
+        assertThat(selector.payload(1)).isEqualTo("b");
+    }
+
+    @Test
+    public void shouldThrowExceptionOnUnsortedRestore() {
+        TopKSelector<String> selector = new TopKSelector<>(2);
+
+        assertThrows(IllegalStateException.class, () ->
+                selector.restore(2, new double[]{1D, 2D}, new long[]{0, 1}, Arrays.asList("a", "b"))
+        );
+    }
+
+    @Test
+    public void shouldMatchStableSortWithHeap() {
+        verifyAgainstSort(TopKSelector.HEAP_LIMIT, 10_000);
+    }
+
+    @Test
+    public void shouldMatchStableSortWithQuickselect() {
+        verifyAgainstSort(TopKSelector.HEAP_LIMIT + 1, 10_000);
+        verifyAgainstSort(3_000, 5_000);
+    }
+
+    @Test
+    public void shouldMatchStableSortForDifferentLimits() {
+        for (int limit = 0; limit < 40; limit++) {
+            verifyAgainstSort(limit, 35);
+        }
+    }
+
+    private void verifyAgainstSort(int limit, int count) {
+        Random random = new Random(limit);
+        TopKSelector<Integer> selector = new TopKSelector<>(limit);
+        List<double[]> items = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            double key = random.nextInt(count / 4 + 1);
+            items.add(new double[]{key, i});
+            selector.offer(key, i, i);
+        }
+        selector.sortDescending();
+
+        List<Integer> expected = items.stream()
+                .sorted(Comparator.comparingDouble((double[] item) -> item[0]).reversed())
+                .limit(limit)
+                .map(item -> (int) item[1])
+                .collect(Collectors.toList());
+
+        assertThat(payloads(selector)).isEqualTo(expected);
+        assertThat(selector.offered()).isEqualTo(count);
+    }
+
+    private <T> List<T> payloads(TopKSelector<T> selector) {
+        List<T> result = new ArrayList<>();
+        for (int i = 0; i < selector.size(); i++) {
+            result.add(selector.payload(i));
+        }
+        return result;
+    }
+}
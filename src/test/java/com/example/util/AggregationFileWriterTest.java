@@ -0,0 +1,74 @@
+package com.example.util;
+
+import com.example.pojo.AggregationResult;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AggregationFileWriterTest {
+
+    private static final String LINE_SEPARATOR = System.lineSeparator();
+
+    @Test
+    public void shouldWriteHeaderAndRows() throws Exception {
+        Path file = Files.createTempDirectory("writer").resolve("top_products.csv");
+
+        AggregationFileWriter.INSTANCE.write(Stream.of(
+                new AggregationResult(1, 5_000D, 750D, "PLN", 0),
+                new AggregationResult(-2, 0.1235D, 1D / 3, "zł", Long.MAX_VALUE)
+        ), file.toString());
+
+        assertThat(content(file)).isEqualTo(
+                "matching_id,total_price,avg_price,currency,ignored_products_count" + LINE_SEPARATOR
+                        + "1," + String.format("%.3f", 5_000D) + "," + String.format("%.3f", 750D) + ",PLN,0"
+                        + LINE_SEPARATOR
+                        + "-2," + String.format("%.3f", 0.1235D) + "," + String.format("%.3f", 1D / 3) + ",zł,"
+                        + Long.MAX_VALUE + LINE_SEPARATOR);
+    }
+
+    @Test
+    public void shouldWriteRowsExceedingBuffer() throws Exception {
+        Path file = Files.createTempDirectory("writer").resolve("top_products.csv");
+
+        AggregationFileWriter.INSTANCE.write(IntStream.range(0, 100_000)
+                .mapToObj(i -> new AggregationResult(i, i, i, "USD", i)), file.toString());
+
+        String expected = IntStream.range(0, 100_000)
+                .mapToObj(i -> i + "," + String.format("%.3f", (double) i) + "," + String.format("%.3f", (double) i)
+                        + ",USD," + i + LINE_SEPARATOR)
+                .collect(Collectors.joining());
+        assertThat(content(file)).endsWith(expected);
+    }
+
+    @Test
+    public void shouldKeepPreviousFileIfWritingFailed() throws Exception {
+        Path file = Files.createTempDirectory("writer").resolve("top_products.csv");
+        Files.write(file, "previous".getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalStateException.class, () ->
+                AggregationFileWriter.INSTANCE.write(Stream.of(1, 2).map(i -> {
+                    if (i == 2) {
+                        throw new IllegalStateException();
+                    }
+                    return new AggregationResult(i, 1D, 1D, "USD", 0);
+                }), file.toString())
+        );
+
+        assertThat(content(file)).isEqualTo("previous");
+        try (Stream<Path> files = Files.list(file.getParent())) {
+            assertThat(files.count()).isEqualTo(1);
+        }
+    }
+
+    private String content(Path file) throws Exception {
+        return new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+    }
+}
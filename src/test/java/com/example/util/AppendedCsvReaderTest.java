@@ -0,0 +1,77 @@
+package com.example.util;
+
+import com.example.exceptions.ParseException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static com.example.TestUtil.toRow;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class AppendedCsvReaderTest {
+
+    @Test
+    public void shouldReadCompleteRecordsOnly() throws Exception {
+        Path file = createFile("a,b\n1,2\n3,4");
+
+        try (AppendedCsvReader reader = new AppendedCsvReader(file, 0, null)) {
+            assertThat(read(reader)).containsExactly(toRow("a", "1", "b", "2"));
+            assertThat(reader.offset()).isEqualTo(8);
+        }
+    }
+
+    @Test
+    public void shouldContinueFromOffsetAfterAppend() throws Exception {
+        Path file = createFile("a,b\n1,2\n3,");
+        long offset;
+        List<String> header;
+        try (AppendedCsvReader reader = new AppendedCsvReader(file, 0, null)) {
+            read(reader);
+            offset = reader.offset();
+            header = reader.getSchema().names();
+        }
+        Files.write(file, "4\n5,6\n".getBytes(StandardCharsets.UTF_8), StandardOpenOption.APPEND);
+
+        try (AppendedCsvReader reader = new AppendedCsvReader(file, offset, header)) {
+            assertThat(read(reader)).containsExactly(toRow("a", "3", "b", "4"), toRow("a", "5", "b", "6"));
+            assertThat(reader.offset()).isEqualTo(Files.size(file));
+        }
+    }
+
+    @Test
+    public void shouldReturnNoRowsIfHeaderIsIncomplete() throws Exception {
+        Path file = createFile("a,b");
+
+        try (AppendedCsvReader reader = new AppendedCsvReader(file, 0, null)) {
+            assertThat(reader.getSchema()).isNull();
+            assertThat(read(reader)).isEmpty();
+        }
+    }
+
+    @Test
+    public void shouldThrowExceptionIfOffsetIsBeyondEndOfFile() throws Exception {
+        Path file = createFile("a,b\n");
+
+        assertThrows(ParseException.class, () ->
+                new AppendedCsvReader(file, 10, Arrays.asList("a", "b"))
+        );
+    }
+
+    private static List<CsvRow> read(AppendedCsvReader reader) {
+        return reader.rows().collect(Collectors.toList());
+    }
+
+    private static Path createFile(String content) throws Exception {
+        Path file = Files.createTempFile("appended", ".csv");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
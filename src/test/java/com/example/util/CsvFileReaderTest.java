@@ -4,7 +4,16 @@ import com.example.exceptions.FileNotFoundException;
 import com.example.exceptions.ParseException;
 import org.junit.jupiter.api.Test;
 
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Spliterator;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
@@ -99,6 +108,211 @@ public class CsvFileReaderTest {
         assertThat(rows.get(1)).isEqualTo(toRow("country", "Poland", "capital", "Warsaw"));
     }
 
+    @Test
+    public void shouldReadRowsLazily() throws Exception {
+        Path path = Files.createTempFile("csv-reader", ".csv");
+        path.toFile().deleteOnExit();
+        Files.write(path, "name,age\nJack,25\nSam,42\nJohn\n".getBytes(StandardCharsets.UTF_8));
+
+        Iterator<CsvRow> rows = CsvFileReader.INSTANCE.readFile(path).iterator();
+
+        assertThat(rows.next()).isEqualTo(toRow("name", "Jack", "age", "25"));
+        assertThat(rows.next()).isEqualTo(toRow("name", "Sam", "age", "42"));
+        assertThrows(ParseException.class, rows::next);
+    }
+
+    @Test
+    public void shouldReadFileFromFilesystemPath() throws Exception {
+        Path path = Paths.get(ClassLoader.getSystemResource("comma-separated-with-spaces.csv").toURI());
+
+        List<CsvRow> rows = streamToList(CsvFileReader.INSTANCE.readFile(path));
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0)).isEqualTo(toRow("name", "Jack", "age", "25"));
+        assertThat(rows.get(1)).isEqualTo(toRow("name", "Sam", "age", "42"));
+    }
+
+    @Test
+    public void shouldResolveNameAsFilesystemPathIfNotInClasspath() throws Exception {
+        Path path = Files.createTempFile("csv-reader", ".csv");
+        path.toFile().deleteOnExit();
+        Files.write(path, "name,age\r\nJack,25\r\nSam,42".getBytes(StandardCharsets.UTF_8));
+
+        List<CsvRow> rows = readFile(path.toString());
+
+        assertThat(rows).hasSize(2);
+        assertThat(rows.get(0)).isEqualTo(toRow("name", "Jack", "age", "25"));
+        assertThat(rows.get(1)).isEqualTo(toRow("name", "Sam", "age", "42"));
+    }
+
+    @Test
+    public void shouldThrowExceptionOnMultiCharacterDelimiterForFilesystemPath() throws Exception {
+        Path path = Paths.get(ClassLoader.getSystemResource("comma-separated.csv").toURI());
+
+        assertThrows(IllegalStateException.class, () ->
+                CsvFileReader.INSTANCE.readFile(path, "||")
+        );
+    }
+
+    @Test
+    public void shouldReadFileInParallelKeepingQuotedLineBreaks() throws Exception {
+        Path path = Files.createTempFile("csv-reader", ".csv");
+        path.toFile().deleteOnExit();
+        StringBuilder content = new StringBuilder("id,comment\n");
+        for (int i = 0; i < 500; i++) {
+            content.append(i).append(',');
+            content.append(i % 3 == 0 ? "\"line\nbreak, \"\"" + i + "\"\"\"" : "plain " + i);
+            content.append(i % 2 == 0 ? "\r\n" : "\n");
+        }
+        Files.write(path, content.toString().getBytes(StandardCharsets.UTF_8));
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            List<CsvRow> expected = streamToList(CsvFileReader.INSTANCE.readFile(path));
+
+            List<CsvRow> actual = pool.submit(() -> streamToList(
+                    CsvFileReader.INSTANCE.readFileParallel(path, ",", pool, 16))).get();
+
+            assertThat(actual).hasSize(500);
+            assertThat(actual).isEqualTo(expected);
+            assertThat(actual.get(3)).isEqualTo(toRow("id", "3", "comment", "line\nbreak, \"3\""));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void shouldReadFileInParallelKeepingQuotesInsideUnquotedFields() throws Exception {
+        Path path = Files.createTempFile("csv-reader", ".csv");
+        path.toFile().deleteOnExit();
+        StringBuilder content = new StringBuilder("id,name,comment\n");
+        for (int i = 0; i < 200; i++) {
+            content.append(i).append(",12\" pizza,");
+            content.append(i % 5 == 0 ? "\"x\ny\"" : "plain " + i).append('\n');
+        }
+        Files.write(path, content.toString().getBytes(StandardCharsets.UTF_8));
+
+        List<CsvRow> expected = streamToList(CsvFileReader.INSTANCE.readFile(path));
+        List<CsvRow> actual = streamToList(
+                CsvFileReader.INSTANCE.readFileParallel(path, ",", ForkJoinPool.commonPool(), 256));
+
+        assertThat(actual).hasSize(200);
+        assertThat(actual).isEqualTo(expected);
+        assertThat(actual.get(5)).isEqualTo(toRow("id", "5", "name", "12\" pizza", "comment", "x\ny"));
+    }
+
+    @Test
+    public void shouldSplitParallelStreamByRanges() throws Exception {
+        Path path = Files.createTempFile("csv-reader", ".csv");
+        path.toFile().deleteOnExit();
+        Files.write(path, "name,age\nJack,25\nSam,42\nAnn,33\nBob,51\n".getBytes(StandardCharsets.UTF_8));
+
+        try (Stream<CsvRow> rows = CsvFileReader.INSTANCE.readFileParallel(path, ",", ForkJoinPool.commonPool(), 8)) {
+            Spliterator<CsvRow> suffix = rows.spliterator();
+            Spliterator<CsvRow> prefix = suffix.trySplit();
+
+            assertThat(prefix).isNotNull();
+            assertThat(rows.isParallel()).isTrue();
+            prefix.tryAdvance(row -> assertThat(row).isEqualTo(toRow("name", "Jack", "age", "25")));
+        }
+    }
+
+    @Test
+    public void shouldReturnEmptyParallelStreamIfFileContainsOnlyHeader() {
+        List<CsvRow> rows = streamToList(CsvFileReader.INSTANCE.readFileParallel("only-header.csv", ","));
+
+        assertThat(rows).isEmpty();
+    }
+
+    @Test
+    public void shouldResolveShardsOfDirectoryAndGlobInOrderOfNames() throws Exception {
+        Path directory = shardDirectory();
+        write(directory.resolve("data-00001.csv"), "name,age\nSam,42\n");
+        write(directory.resolve("data-00000.csv"), "name,age\nJack,25\n");
+        write(directory.resolve("other.txt"), "ignored");
+
+        assertThat(CsvFileReader.INSTANCE.resolveShards(directory.toString())).containsExactly(
+                directory.resolve("data-00000.csv"), directory.resolve("data-00001.csv"));
+        assertThat(CsvFileReader.INSTANCE.resolveShards(directory.resolve("data-*1.csv").toString()))
+                .containsExactly(directory.resolve("data-00001.csv"));
+        assertThat(readFile(directory.toString())).containsExactly(
+                toRow("name", "Jack", "age", "25"),
+                toRow("name", "Sam", "age", "42"));
+        assertThrows(FileNotFoundException.class, () ->
+                CsvFileReader.INSTANCE.resolveShards(directory.resolve("missing-*.csv").toString())
+        );
+    }
+
+    @Test
+    public void shouldReadShardsConcurrentlyKeepingTheirOrder() throws Exception {
+        Path directory = shardDirectory();
+        for (int shard = 0; shard < 12; shard++) {
+            StringBuilder content = new StringBuilder("id,shard\n");
+            for (int i = 0; i < 100 * shard; i++) {
+                content.append(i).append(',').append(shard).append('\n');
+            }
+            write(directory.resolve(String.format("data-%05d.csv", shard)), content.toString());
+        }
+        List<Path> shards = CsvFileReader.INSTANCE.resolveShards(directory.toString());
+
+        List<List<CsvRow>> actual = CsvFileReader.INSTANCE.readShards(shards, ",", 3, this::streamToList);
+
+        assertThat(actual).hasSize(12);
+        for (int shard = 0; shard < 12; shard++) {
+            String name = String.valueOf(shard);
+            assertThat(actual.get(shard)).hasSize(100 * shard);
+            assertThat(actual.get(shard)).allMatch(row -> row.get(1).equals(name));
+        }
+        assertThat(actual.get(5).get(0)).isEqualTo(toRow("id", "0", "shard", "5"));
+    }
+
+    @Test
+    public void shouldPassShardResultsInOrderHoldingAtMostOnePerThread() throws Exception {
+        Path directory = shardDirectory();
+        for (int shard = 0; shard < 10; shard++) {
+            write(directory.resolve(String.format("data-%05d.csv", shard)), "id,shard\n0," + shard + "\n");
+        }
+        List<Path> shards = CsvFileReader.INSTANCE.resolveShards(directory.toString());
+        AtomicInteger held = new AtomicInteger();
+        AtomicInteger maxHeld = new AtomicInteger();
+        List<String> consumed = new ArrayList<>();
+
+        CsvFileReader.INSTANCE.readShards(shards, ",", 3, rows -> {
+            String shard = rows.findFirst().get().get(1);
+            maxHeld.accumulateAndGet(held.incrementAndGet(), Math::max);
+            return shard;
+        }, shard -> {
+            consumed.add(shard);
+            held.decrementAndGet();
+        });
+
+        assertThat(consumed).containsExactly("0", "1", "2", "3", "4", "5", "6", "7", "8", "9");
+        assertThat(maxHeld.get()).isLessThanOrEqualTo(3);
+    }
+
+    @Test
+    public void shouldThrowExceptionIfShardsHaveDifferentHeaders() throws Exception {
+        Path directory = shardDirectory();
+        write(directory.resolve("data-00000.csv"), "name,age\nJack,25\n");
+        write(directory.resolve("data-00001.csv"), "age,name\n42,Sam\n");
+        List<Path> shards = CsvFileReader.INSTANCE.resolveShards(directory.toString());
+
+        assertThrows(ParseException.class, () -> readFile(directory.toString()));
+        assertThrows(ParseException.class, () ->
+                CsvFileReader.INSTANCE.readShards(shards, ",", 2, this::streamToList)
+        );
+    }
+
+    private static Path shardDirectory() throws Exception {
+        Path directory = Files.createTempDirectory("csv-shards");
+        directory.toFile().deleteOnExit();
+        return directory;
+    }
+
+    private static void write(Path path, String content) throws Exception {
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+        path.toFile().deleteOnExit();
+    }
+
     private List<CsvRow> readFile(String name) {
         return streamToList(
                 CsvFileReader.INSTANCE.readFile(name)
@@ -0,0 +1,91 @@
+package com.example.util;
+
+import com.example.exceptions.ParseException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CsvRecordReaderTest {
+
+    @Test
+    public void shouldReturnNoRecordsForEmptyContent() throws Exception {
+        assertThat(read("", 4)).isEmpty();
+    }
+
+    @Test
+    public void shouldSplitRecordsAcrossWindows() throws Exception {
+        List<List<String>> records = read("id,name\n1,first\r\n22,second\n333,third", 4);
+
+        assertThat(records).containsExactly(
+                Arrays.asList("id", "name"),
+                Arrays.asList("1", "first"),
+                Arrays.asList("22", "second"),
+                Arrays.asList("333", "third"));
+    }
+
+    @Test
+    public void shouldGrowWindowForLongRecord() throws Exception {
+        List<List<String>> records = read("a,bbbbbbbbbbbbbbbbbbbbbbbb\nc,d\n", 2);
+
+        assertThat(records).containsExactly(
+                Arrays.asList("a", "bbbbbbbbbbbbbbbbbbbbbbbb"),
+                Arrays.asList("c", "d"));
+    }
+
+    @Test
+    public void shouldTrimAndDecodeCells() throws Exception {
+        List<List<String>> records = read(" zł ,\t€ \n,", 64);
+
+        assertThat(records).containsExactly(
+                Arrays.asList("zł", "€"),
+                Arrays.asList("", ""));
+    }
+
+    @Test
+    public void shouldKeepQuotedRecordSpanningWindows() throws Exception {
+        List<List<String>> records = read("a,\"multi\nline, \"\"quoted\"\"\"\nb,c", 4);
+
+        assertThat(records).containsExactly(
+                Arrays.asList("a", "multi\nline, \"quoted\""),
+                Arrays.asList("b", "c"));
+    }
+
+    @Test
+    public void shouldThrowExceptionIfRowSizeDiffersFromHeader() throws Exception {
+        assertThrows(ParseException.class, () ->
+                read("a,b\n1,2,3", 64)
+        );
+    }
+
+    private List<List<String>> read(String content, int windowLength) throws Exception {
+        Path path = Files.createTempFile("csv-record-reader", ".csv");
+        path.toFile().deleteOnExit();
+        Files.write(path, content.getBytes(StandardCharsets.UTF_8));
+
+        try (MappedFileSource source = new MappedFileSource(path)) {
+            CsvRecordReader reader = new CsvRecordReader(source, new CsvTokenizer(','), windowLength);
+            List<List<String>> records = new ArrayList<>();
+            CsvSchema schema = reader.readHeader();
+            if (schema == null) {
+                return records;
+            }
+            records.add(schema.names());
+            reader.forEachRemaining(row -> {
+                List<String> values = new ArrayList<>();
+                for (int i = 0; i < schema.size(); i++) {
+                    values.add(row.get(i));
+                }
+                records.add(values);
+            });
+            return records;
+        }
+    }
+}
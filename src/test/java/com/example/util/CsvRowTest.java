@@ -1,5 +1,7 @@
 package com.example.util;
 
+import com.example.exceptions.ParseException;
+import com.google.common.collect.ImmutableMap;
 import org.junit.jupiter.api.Test;
 
 import java.util.Optional;
@@ -63,4 +65,41 @@ public class CsvRowTest {
         assertThat(firstRow.hashCode()).isEqualTo(secondRow.hashCode());
     }
 
-}
\ No newline at end of file
+    @Test
+    public void shouldReturnValueByIndexOfSchema() {
+        CsvRow row = toRow("age", "25");
+
+        int age = row.getSchema().requireIndex("age");
+
+        assertThat(row.get(age)).isEqualTo("25");
+    }
+
+    @Test
+    public void shouldCompareRowsRegardlessOfColumnsOrder() {
+        CsvRow firstRow = new CsvRow(ImmutableMap.of("name", "Jack", "age", "40"));
+        CsvRow secondRow = new CsvRow(ImmutableMap.of("age", "40", "name", "Jack"));
+
+        assertThat(firstRow).isEqualTo(secondRow);
+        assertThat(firstRow.hashCode()).isEqualTo(secondRow.hashCode());
+    }
+
+    @Test
+    public void shouldParsePrimitiveValuesByIndex() {
+        CsvRow row = new CsvRow(ImmutableMap.of("id", "7", "price", "10.25", "quantity", "3"));
+        CsvSchema schema = row.getSchema();
+
+        assertThat(row.getLong(schema.requireIndex("id"))).isEqualTo(7L);
+        assertThat(row.getDouble(schema.requireIndex("price"))).isEqualTo(10.25D);
+        assertThat(row.getInt(schema.requireIndex("quantity"))).isEqualTo(3);
+    }
+
+    @Test
+    public void shouldThrowExceptionOnMalformedNumber() {
+        CsvRow row = toRow("age", "twenty");
+
+        assertThrows(ParseException.class, () ->
+                row.getLong(0)
+        );
+    }
+
+}
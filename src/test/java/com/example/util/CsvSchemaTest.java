@@ -0,0 +1,45 @@
+package com.example.util;
+
+import com.example.exceptions.ParseException;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CsvSchemaTest {
+
+    @Test
+    public void shouldResolveColumnIndicesByName() {
+        CsvSchema schema = CsvSchema.of(Arrays.asList("id", "price"));
+
+        assertThat(schema.size()).isEqualTo(2);
+        assertThat(schema.indexOf("id")).isEqualTo(0);
+        assertThat(schema.requireIndex("price")).isEqualTo(1);
+        assertThat(schema.name(1)).isEqualTo("price");
+    }
+
+    @Test
+    public void shouldReturnNegativeIndexForMissingColumn() {
+        CsvSchema schema = CsvSchema.of(Arrays.asList("id", "price"));
+
+        assertThat(schema.indexOf("currency")).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldThrowExceptionIfRequiredColumnIsMissing() {
+        CsvSchema schema = CsvSchema.of(Arrays.asList("id", "price"));
+
+        assertThrows(ParseException.class, () ->
+                schema.requireIndex("currency")
+        );
+    }
+
+    @Test
+    public void shouldThrowExceptionOnDuplicatedColumn() {
+        assertThrows(ParseException.class, () ->
+                CsvSchema.of(Arrays.asList("id", "id"))
+        );
+    }
+}
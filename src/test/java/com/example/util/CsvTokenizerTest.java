@@ -0,0 +1,130 @@
+package com.example.util;
+
+import com.example.exceptions.ParseException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class CsvTokenizerTest {
+
+    private final CsvTokenizer tokenizer = new CsvTokenizer(',');
+
+    @Test
+    public void shouldThrowExceptionOnQuoteDelimiter() {
+        assertThrows(IllegalStateException.class, () ->
+                new CsvTokenizer('"')
+        );
+    }
+
+    @Test
+    public void shouldSplitAndTrimUnquotedFields() {
+        ByteBuffer buffer = bytes(" a , b,,c \r\nnext");
+
+        int next = tokenizer.tokenize(buffer, 0, buffer.limit(), false);
+
+        assertThat(fields()).containsExactly("a", "b", "", "c");
+        assertThat(next).isEqualTo(buffer.limit() - "next".length());
+    }
+
+    @Test
+    public void shouldReportFieldBoundariesAsOffsets() {
+        ByteBuffer buffer = bytes("ab, \"cd\"\n");
+
+        tokenizer.tokenize(buffer, 0, buffer.limit(), true);
+
+        assertThat(tokenizer.fieldCount()).isEqualTo(2);
+        assertThat(tokenizer.fieldStart(0)).isEqualTo(0);
+        assertThat(tokenizer.fieldEnd(0)).isEqualTo(2);
+        assertThat(tokenizer.fieldStart(1)).isEqualTo(5);
+        assertThat(tokenizer.fieldEnd(1)).isEqualTo(7);
+        assertThat(tokenizer.isEscaped(1)).isFalse();
+    }
+
+    @Test
+    public void shouldKeepDelimitersLineBreaksAndEscapedQuotesInsideQuotes() {
+        ByteBuffer buffer = bytes("\"a,b\",\"line\nbreak\",\"say \"\"hi\"\"\", \" padded \"\n");
+
+        tokenizer.tokenize(buffer, 0, buffer.limit(), true);
+
+        assertThat(fields()).containsExactly("a,b", "line\nbreak", "say \"hi\"", " padded ");
+        assertThat(tokenizer.isEscaped(2)).isTrue();
+    }
+
+    @Test
+    public void shouldReturnLastFieldAtEndOfInput() {
+        ByteBuffer buffer = bytes("a,\"b\"");
+
+        int next = tokenizer.tokenize(buffer, 0, buffer.limit(), true);
+
+        assertThat(fields()).containsExactly("a", "b");
+        assertThat(next).isEqualTo(buffer.limit());
+    }
+
+    @Test
+    public void shouldReportIncompleteRecord() {
+        ByteBuffer unquoted = bytes("a,b");
+        ByteBuffer quoted = bytes("a,\"b\nc");
+        ByteBuffer quoteAtLimit = bytes("a,\"b\"");
+
+        assertThat(tokenizer.tokenize(unquoted, 0, unquoted.limit(), false)).isEqualTo(-1);
+        assertThat(tokenizer.tokenize(quoted, 0, quoted.limit(), false)).isEqualTo(-1);
+        assertThat(tokenizer.tokenize(quoteAtLimit, 0, quoteAtLimit.limit(), false)).isEqualTo(-1);
+    }
+
+    @Test
+    public void shouldTokenizeFromGivenOffset() {
+        ByteBuffer buffer = bytes("a,b\nc,d\n");
+
+        int next = tokenizer.tokenize(buffer, 4, buffer.limit(), true);
+
+        assertThat(fields()).containsExactly("c", "d");
+        assertThat(next).isEqualTo(buffer.limit());
+    }
+
+    @Test
+    public void shouldThrowExceptionOnUnterminatedQuote() {
+        ByteBuffer buffer = bytes("a,\"b");
+
+        assertThrows(ParseException.class, () ->
+                tokenizer.tokenize(buffer, 0, buffer.limit(), true)
+        );
+    }
+
+    @Test
+    public void shouldThrowExceptionOnCharactersAfterClosingQuote() {
+        ByteBuffer buffer = bytes("\"a\"b,c\n");
+
+        assertThrows(ParseException.class, () ->
+                tokenizer.tokenize(buffer, 0, buffer.limit(), true)
+        );
+    }
+
+    @Test
+    public void shouldCopyUnescapedField() {
+        ByteBuffer buffer = bytes("\"x\"\"y\"\n");
+        byte[] target = new byte[8];
+
+        tokenizer.tokenize(buffer, 0, buffer.limit(), true);
+        int length = tokenizer.copyField(0, target, 1);
+
+        assertThat(new String(target, 1, length, StandardCharsets.UTF_8)).isEqualTo("x\"y");
+    }
+
+    private List<String> fields() {
+        List<String> fields = new ArrayList<>();
+        for (int i = 0; i < tokenizer.fieldCount(); i++) {
+            fields.add(tokenizer.field(i));
+        }
+        return fields;
+    }
+
+    private ByteBuffer bytes(String content) {
+        return ByteBuffer.wrap(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
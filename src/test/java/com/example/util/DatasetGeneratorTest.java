@@ -0,0 +1,94 @@
+package com.example.util;
+
+import com.example.pojo.Matching;
+import com.example.repositories.csv.ColumnarProductRepositoryImpl;
+import com.example.repositories.csv.CurrencyRepositoryImpl;
+import com.example.repositories.csv.MatchingRepositoryImpl;
+import org.junit.jupiter.api.Test;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class DatasetGeneratorTest {
+
+    @Test
+    public void shouldThrowExceptionOnZeroMatchings() {
+        assertThrows(IllegalStateException.class, () ->
+                new DatasetGenerator(1, 10, 0, 1)
+        );
+    }
+
+    @Test
+    public void shouldNameCurrenciesWithAtLeastThreeLetters() {
+        assertThat(DatasetGenerator.currency(0)).isEqualTo("AAA");
+        assertThat(DatasetGenerator.currency(27)).isEqualTo("ABB");
+        assertThat(DatasetGenerator.currency(26 * 26 * 26)).isEqualTo("BAAA");
+    }
+
+    @Test
+    public void shouldGenerateReadableFiles() throws Exception {
+        Path directory = generate(new DatasetGenerator(7, DatasetGenerator.BLOCK_ROWS + 10, 50, 4).topPricedCount(2));
+
+        ColumnarProductRepositoryImpl products = new ColumnarProductRepositoryImpl(
+                directory.resolve("data.csv").toString());
+        CurrencyRepositoryImpl currencies = new CurrencyRepositoryImpl(directory.resolve("currencies.csv").toString());
+        MatchingRepositoryImpl matchings = new MatchingRepositoryImpl(directory.resolve("matchings.csv").toString());
+
+        assertThat(products.size()).isEqualTo(DatasetGenerator.BLOCK_ROWS + 10);
+        assertThat(products.getId(DatasetGenerator.BLOCK_ROWS + 9)).isEqualTo(DatasetGenerator.BLOCK_ROWS + 10);
+        assertThat(products.getCurrencyCount()).isEqualTo(4);
+        IntStream.range(0, 4).forEach(code ->
+                assertThat(currencies.getRatioForCurrency(products.getCurrency(code))).isPresent());
+        assertThat(matchings.findAll().map(Matching::getTopPricedCount).collect(Collectors.toSet()))
+                .containsExactly(2L);
+        assertThat(matchings.findAll().count()).isEqualTo(50);
+    }
+
+    @Test
+    public void shouldGenerateSameFilesForAnyNumberOfThreads() throws Exception {
+        Path single = generate(new DatasetGenerator(3, 3 * DatasetGenerator.BLOCK_ROWS, 100, 5).threads(1));
+        Path multiple = generate(new DatasetGenerator(3, 3 * DatasetGenerator.BLOCK_ROWS, 100, 5).threads(4));
+        Path otherSeed = generate(new DatasetGenerator(4, 3 * DatasetGenerator.BLOCK_ROWS, 100, 5).threads(4));
+
+        for (String file : new String[]{"data.csv", "currencies.csv", "matchings.csv"}) {
+            assertThat(Files.readAllBytes(multiple.resolve(file))).isEqualTo(Files.readAllBytes(single.resolve(file)));
+        }
+        assertThat(Files.readAllBytes(otherSeed.resolve("data.csv")))
+                .isNotEqualTo(Files.readAllBytes(single.resolve("data.csv")));
+    }
+
+    @Test
+    public void shouldSkewProductsTowardsFirstMatching() throws Exception {
+        int productCount = 20_000;
+        Path giant = generate(new DatasetGenerator(5, productCount, 1000, 3)
+                .matchingSkew(DatasetGenerator.Skew.GIANT));
+        Path zipf = generate(new DatasetGenerator(5, productCount, 1000, 3)
+                .matchingSkew(DatasetGenerator.Skew.ZIPF));
+
+        assertThat(firstMatchingShare(giant)).isBetween(0.45, 0.55);
+        assertThat(firstMatchingShare(zipf)).isBetween(0.1, 0.2);
+    }
+
+    private static double firstMatchingShare(Path directory) {
+        ColumnarProductRepositoryImpl products = new ColumnarProductRepositoryImpl(
+                directory.resolve("data.csv").toString());
+        int[] count = new int[1];
+        products.forEachRow(1L, row -> count[0]++);
+        return (double) count[0] / products.size();
+    }
+
+    private static Path generate(DatasetGenerator generator) throws Exception {
+        Path directory = Files.createTempDirectory("dataset");
+        generator.generate(directory);
+        for (String file : new String[]{"data.csv", "currencies.csv", "matchings.csv"}) {
+            directory.resolve(file).toFile().deleteOnExit();
+        }
+        directory.toFile().deleteOnExit();
+        return directory;
+    }
+}
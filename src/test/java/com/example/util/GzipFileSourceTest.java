@@ -0,0 +1,232 @@
+package com.example.util;
+
+import com.example.exceptions.FileNotFoundException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+import static com.example.TestUtil.streamToList;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class GzipFileSourceTest {
+
+    private static final int BGZF_BLOCK_LENGTH = 60 * 1024;
+
+    @Test
+    public void shouldThrowExceptionOnNotExistingFile() {
+        assertThrows(FileNotFoundException.class, () ->
+                new GzipFileSource(Paths.get("dummy.csv.gz"))
+        );
+    }
+
+    @Test
+    public void shouldRecognizeGzipFilesByExtension() {
+        assertThat(GzipFileSource.isGzip(Paths.get("data", "products.csv.gz"))).isTrue();
+        assertThat(GzipFileSource.isGzip(Paths.get("data", "products.csv"))).isFalse();
+    }
+
+    @Test
+    public void shouldReadWindowsOfDecompressedContent() throws Exception {
+        byte[] content = content(3 * 1024 * 1024 + 17);
+        Path path = gzip(content, content.length);
+
+        assertThat(readWindows(path, 1, 100_000)).isEqualTo(content);
+    }
+
+    @Test
+    public void shouldReadConcatenatedMembers() throws Exception {
+        byte[] content = content(500_000);
+        Path path = gzip(content, 70_000);
+
+        assertThat(readWindows(path, 1, 64 * 1024)).isEqualTo(content);
+    }
+
+    @Test
+    public void shouldReadBgzfBlocksInParallel() throws Exception {
+        byte[] content = content(2 * 1024 * 1024 + 5);
+        Path path = bgzf(content);
+
+        assertThat(readWindows(path, 4, 100_000)).isEqualTo(content);
+        assertThat(readWindows(path, 1, 1 << 20)).isEqualTo(content);
+    }
+
+    @Test
+    public void shouldReadBlocksWithLargeContentSequentially() throws Exception {
+        byte[] content = content(150_000);
+        Path path = bgzf(content, 100_000, 4);
+
+        assertThat(readWindows(path, 4, 64 * 1024)).isEqualTo(content);
+    }
+
+    @Test
+    public void shouldReadRestOfFileSequentiallyFromMemberWithOtherFlags() throws Exception {
+        byte[] content = content(300_000);
+        Path path = Files.createTempFile("gzip-source", ".csv.gz");
+        path.toFile().deleteOnExit();
+        try (OutputStream output = Files.newOutputStream(path)) {
+            output.write(bgzfBlock(content, 0, BGZF_BLOCK_LENGTH, 4));
+            output.write(bgzfBlock(content, BGZF_BLOCK_LENGTH, BGZF_BLOCK_LENGTH, 4 | 8));
+            output.write(bgzfBlock(content, 2 * BGZF_BLOCK_LENGTH, content.length - 2 * BGZF_BLOCK_LENGTH, 4));
+        }
+
+        assertThat(readWindows(path, 4, 64 * 1024)).isEqualTo(content);
+    }
+
+    @Test
+    public void shouldSkipBytesAndRejectReadingBackwards() throws Exception {
+        byte[] content = content(300_000);
+        Path path = bgzf(content);
+
+        try (GzipFileSource source = new GzipFileSource(path, 2)) {
+            ByteBuffer window = source.window(200_000, 10);
+
+            assertThat(toArray(window)).isEqualTo(Arrays.copyOfRange(content, 200_000, 200_010));
+            assertThat(source.window(200_005, 10).get(0)).isEqualTo(content[200_005]);
+            assertThat(source.window(400_000, 10).limit()).isZero();
+            assertThrows(IOException.class, () -> source.window(0, 10));
+        }
+    }
+
+    @Test
+    public void shouldThrowExceptionOnCorruptedBgzfBlock() throws Exception {
+        Path path = bgzf(content(200_000));
+        byte[] compressed = Files.readAllBytes(path);
+        compressed[compressed.length / 2] ^= 0x55;
+        Files.write(path, compressed);
+
+        assertThrows(IOException.class, () -> readWindows(path, 2, 64 * 1024));
+    }
+
+    @Test
+    public void shouldReadCompressedCsvFile() throws Exception {
+        StringBuilder csv = new StringBuilder("name,age\n");
+        for (int i = 0; i < 20_000; i++) {
+            csv.append("name ").append(i).append(',').append(i % 90).append('\n');
+        }
+        byte[] content = csv.toString().getBytes("UTF-8");
+        Path plain = Files.createTempFile("gzip-source", ".csv");
+        plain.toFile().deleteOnExit();
+        Files.write(plain, content);
+
+        List<CsvRow> expected = streamToList(CsvFileReader.INSTANCE.readFile(plain));
+
+        assertThat(streamToList(CsvFileReader.INSTANCE.readFile(gzip(content, content.length)))).isEqualTo(expected);
+        assertThat(streamToList(CsvFileReader.INSTANCE.readFile(bgzf(content)))).isEqualTo(expected);
+        assertThat(streamToList(CsvFileReader.INSTANCE.readFileParallel(bgzf(content).toString(), ",")))
+                .isEqualTo(expected);
+    }
+
+    private static byte[] readWindows(Path path, int threads, int length) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        try (GzipFileSource source = new GzipFileSource(path, threads)) {
+            long offset = 0;
+            while (true) {
+                ByteBuffer window = source.window(offset, length);
+                output.write(toArray(window));
+                offset += window.limit();
+                if (window.limit() < length) {
+                    return output.toByteArray();
+                }
+            }
+        }
+    }
+
+    private static byte[] toArray(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.remaining()];
+        buffer.duplicate().get(bytes);
+        return bytes;
+    }
+
+    private static byte[] content(int length) {
+        Random random = new Random(length);
+        byte[] content = new byte[length];
+        for (int i = 0; i < length; i++) {
+            content[i] = (byte) ('a' + random.nextInt(random.nextBoolean() ? 3 : 26));
+        }
+        return content;
+    }
+
+    /**
+     * Writes content as gzip members of given length.
+     */
+    private static Path gzip(byte[] content, int memberLength) throws IOException {
+        Path path = Files.createTempFile("gzip-source", ".csv.gz");
+        path.toFile().deleteOnExit();
+        try (OutputStream output = Files.newOutputStream(path)) {
+            for (int from = 0; from < content.length; from += memberLength) {
+                GZIPOutputStream member = new GZIPOutputStream(output) {
+                    @Override
+                    public void close() throws IOException {
+                        finish();
+                    }
+                };
+                member.write(content, from, Math.min(memberLength, content.length - from));
+                member.close();
+            }
+        }
+        return path;
+    }
+
+    /**
+     * Writes content as BGZF blocks followed by the empty end-of-file block.
+     */
+    private static Path bgzf(byte[] content) throws IOException {
+        return bgzf(content, BGZF_BLOCK_LENGTH, 4);
+    }
+
+    private static Path bgzf(byte[] content, int blockLength, int flags) throws IOException {
+        Path path = Files.createTempFile("gzip-source", ".csv.gz");
+        path.toFile().deleteOnExit();
+        try (OutputStream output = Files.newOutputStream(path)) {
+            for (int from = 0; from < content.length; from += blockLength) {
+                output.write(bgzfBlock(content, from, Math.min(blockLength, content.length - from), flags));
+            }
+            output.write(bgzfBlock(content, 0, 0, flags));
+        }
+        return path;
+    }
+
+    /**
+     * Returns gzip member with the BGZF extra subfield and given header flags,
+     * the file name flag adds a file name after the extra field.
+     */
+    private static byte[] bgzfBlock(byte[] content, int from, int length, int flags) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        deflater.setInput(content, from, length);
+        deflater.finish();
+        byte[] compressed = new byte[length + 1024];
+        int compressedLength = 0;
+        while (!deflater.finished()) {
+            compressedLength += deflater.deflate(compressed, compressedLength, compressed.length - compressedLength);
+        }
+        deflater.end();
+        CRC32 crc = new CRC32();
+        crc.update(content, from, length);
+
+        byte[] name = (flags & 8) != 0 ? new byte[]{'x', 0} : new byte[0];
+        ByteBuffer block = ByteBuffer.allocate(18 + name.length + compressedLength + 8)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        block.put((byte) 0x1f).put((byte) 0x8b).put((byte) 8).put((byte) flags).putInt(0).put((byte) 0)
+                .put((byte) 0xff);
+        block.putShort((short) 6).put((byte) 'B').put((byte) 'C').putShort((short) 2);
+        block.putShort((short) (block.capacity() - 1));
+        block.put(name);
+        block.put(compressed, 0, compressedLength);
+        block.putInt((int) crc.getValue()).putInt(length);
+        return block.array();
+    }
+}
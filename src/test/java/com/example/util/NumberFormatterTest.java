@@ -0,0 +1,85 @@
+package com.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+public class NumberFormatterTest {
+
+    @Test
+    public void shouldFormatLongSameAsLongToString() {
+        long[] values = {0, 1, -1, 9, 10, 99, 100, 123456789L, -987654321L, Long.MAX_VALUE, Long.MIN_VALUE,
+                Long.MIN_VALUE + 1, 999999999999999999L, 1000000000000000000L};
+        for (long value : values) {
+            assertThat(formatLong(value)).isEqualTo(Long.toString(value));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long value = random.nextLong() >> random.nextInt(64);
+            assertThat(formatLong(value)).isEqualTo(Long.toString(value));
+        }
+    }
+
+    @Test
+    public void shouldFormatFixed3SameAsStringFormat() {
+        double[] values = {0, 1, 0.5, 0.0004, 0.0006, 0.1234, 0.9996, 999.9994, 2.675, 1D / 3, 2D / 3,
+                123456789.123, 999999999.9994, 1e-300, Double.MIN_VALUE, 5_000, 750, 187.5};
+        for (double value : values) {
+            assertFormattedSameAsStringFormat(value);
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            assertFormattedSameAsStringFormat(random.nextDouble() * Math.pow(10, random.nextInt(10)));
+            assertFormattedSameAsStringFormat(random.nextInt(100_000) / 1000D);
+            assertFormattedSameAsStringFormat(random.nextInt(1_000_000) / 10_000D);
+        }
+    }
+
+    @Test
+    public void shouldNotFormatValuesOutsideOfFastPath() {
+        double[] values = {-1, -0D, Double.NaN, Double.POSITIVE_INFINITY, Double.NEGATIVE_INFINITY, 1e9, 1e20,
+                0.0005, 1.0005, 0.1235};
+        for (double value : values) {
+            ByteBuffer buffer = ByteBuffer.allocate(NumberFormatter.MAX_FIXED3_LENGTH);
+
+            assertThat(NumberFormatter.putFixed3(value, buffer)).isFalse();
+            assertThat(buffer.position()).isZero();
+        }
+    }
+
+    @Test
+    public void shouldNotFormatFixed3ForLocaleWithOtherDecimalSeparator() {
+        Locale locale = Locale.getDefault(Locale.Category.FORMAT);
+        try {
+            Locale.setDefault(Locale.Category.FORMAT, Locale.GERMANY);
+            assertThat(NumberFormatter.putFixed3(1.5, ByteBuffer.allocate(NumberFormatter.MAX_FIXED3_LENGTH)))
+                    .isFalse();
+
+            Locale.setDefault(Locale.Category.FORMAT, Locale.US);
+            assertThat(NumberFormatter.putFixed3(1.5, ByteBuffer.allocate(NumberFormatter.MAX_FIXED3_LENGTH)))
+                    .isTrue();
+        } finally {
+            Locale.setDefault(Locale.Category.FORMAT, locale);
+        }
+    }
+
+    private void assertFormattedSameAsStringFormat(double value) {
+        ByteBuffer buffer = ByteBuffer.allocate(NumberFormatter.MAX_FIXED3_LENGTH);
+        if (NumberFormatter.putFixed3(value, buffer)) {
+            assertThat(new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII))
+                    .as("%s", value)
+                    .isEqualTo(String.format("%.3f", value));
+        }
+    }
+
+    private String formatLong(long value) {
+        ByteBuffer buffer = ByteBuffer.allocate(NumberFormatter.MAX_LONG_LENGTH);
+        NumberFormatter.putLong(value, buffer);
+        return new String(buffer.array(), 0, buffer.position(), StandardCharsets.US_ASCII);
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.util;
+
+import com.example.exceptions.ParseException;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class NumberParserTest {
+
+    @Test
+    public void shouldParseLongValues() {
+        for (String value : new String[]{"0", "42", "-42", "+42", "9223372036854775807", "-9223372036854775808"}) {
+            assertThat(parseLong(value)).isEqualTo(Long.parseLong(value));
+        }
+    }
+
+    @Test
+    public void shouldThrowExceptionOnMalformedLong() {
+        for (String value : new String[]{"", "-", "4.2", "1a", "9223372036854775808", "-9223372036854775809"}) {
+            assertThrows(ParseException.class, () ->
+                    parseLong(value)
+            );
+        }
+    }
+
+    @Test
+    public void shouldThrowExceptionOnIntOverflow() {
+        byte[] bytes = "2147483648".getBytes(StandardCharsets.US_ASCII);
+
+        assertThrows(ParseException.class, () ->
+                NumberParser.parseInt(bytes, 0, bytes.length)
+        );
+    }
+
+    @Test
+    public void shouldParseDoubleValuesSameAsJdk() {
+        String[] values = {"0", "-0", "1000", "1050", "2.4", ".5", "5.", "0.1", "1e3", "1.5E-3",
+                "123456789012345678901234567890", "1e300", "4.9e-324", "NaN", "-Infinity", "0x1p3", "7d"};
+        for (String value : values) {
+            assertThat(parseDouble(value)).isEqualTo(Double.parseDouble(value));
+        }
+    }
+
+    @Test
+    public void shouldParseRandomDecimalsSameAsJdk() {
+        Random random = new Random(42);
+        for (int i = 0; i < 100_000; i++) {
+            String value = String.format("%d.%0" + (1 + random.nextInt(6)) + "d",
+                    random.nextInt(1_000_000), random.nextInt(100_000));
+            assertThat(parseDouble(value)).isEqualTo(Double.parseDouble(value));
+        }
+    }
+
+    @Test
+    public void shouldThrowExceptionOnMalformedDouble() {
+        for (String value : new String[]{"", ".", "1e", "1.2.3", "abc"}) {
+            assertThrows(ParseException.class, () ->
+                    parseDouble(value)
+            );
+        }
+    }
+
+    private long parseLong(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        return NumberParser.parseLong(bytes, 0, bytes.length);
+    }
+
+    private double parseDouble(String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.US_ASCII);
+        return NumberParser.parseDouble(bytes, 0, bytes.length);
+    }
+}